@@ -0,0 +1,223 @@
+package com.alibaba.cloudapi.verifier;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+A local HTTP server that answers like the API Gateway as far as signatures go: 200 for a request that verifies and
+400 with X-Ca-Error-Message for one that does not. Every path is accepted. Usable from a test, where it is started
+on a free port and closed afterwards:
+
+    try (MockGatewayServer gateway = new MockGatewayServer(new SignatureVerifier().addKey(appKey, appSecret))) {
+        int port = gateway.start(0);
+        ...
+    }
+
+or on its own with "java -cp <gateway-verifier jar> com.alibaba.cloudapi.verifier.MockGatewayServer".
+ */
+public class MockGatewayServer implements AutoCloseable
+{
+    public static final int DEFAULT_PORT = 8089;
+
+    private static final String ERROR_MESSAGE_HEADER = "X-Ca-Error-Message";
+    private static final String REQUEST_ID_HEADER = "X-Ca-Request-Id";
+    private static final int STOP_DELAY_SECONDS = 0;
+
+    static {
+        // the JDK server otherwise leaves Nagle's algorithm on, which caps keep-alive clients at a few hundred
+        // requests per second. only takes effect if set before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final SignatureVerifier verifier;
+    private final int threads;
+    private final String requestIdPrefix = UUID.randomUUID().toString().substring(0, 24);
+    private final AtomicLong requestCount = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MockGatewayServer(final SignatureVerifier verifier)
+    {
+        this(verifier, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public MockGatewayServer(final SignatureVerifier verifier, final int threads)
+    {
+        this.verifier = verifier;
+        this.threads = threads;
+    }
+
+    public SignatureVerifier getVerifier() { return verifier; }
+
+    /*
+    start on the given port of the loopback address, 0 for any free port. returns the bound port.
+     */
+    public synchronized int start(final int port) throws IOException
+    {
+        return start(new InetSocketAddress("127.0.0.1", port));
+    }
+
+    public synchronized int start(final InetSocketAddress address) throws IOException
+    {
+        if (server != null) {
+            throw new IllegalStateException("server is already running");
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "MockGateway-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public synchronized int getPort()
+    {
+        if (server == null) {
+            throw new IllegalStateException("server is not running");
+        }
+        return server.getAddress().getPort();
+    }
+
+    public synchronized void stop()
+    {
+        if (server != null) {
+            server.stop(STOP_DELAY_SECONDS);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        stop();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException
+    {
+        try {
+            final byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readAllBytes();
+            }
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                List<String> values = new ArrayList<>(header.getValue().size());
+                for (String value : header.getValue()) {
+                    values.add(VerifierRequest.decodeHeaderValue(value));
+                }
+                headers.put(header.getKey(), values);
+            }
+            final VerificationResult result = verifier.verify(new VerifierRequest(exchange.getRequestMethod(),
+                    exchange.getRequestURI().getRawPath(), exchange.getRequestURI().getRawQuery(), headers, body));
+
+            final Headers responseHeaders = exchange.getResponseHeaders();
+            responseHeaders.set(REQUEST_ID_HEADER, requestIdPrefix + Long.toHexString(requestCount.incrementAndGet()));
+            responseHeaders.set("Content-Type", "text/plain; charset=utf-8");
+            final byte[] response;
+            if (result.isAccepted()) {
+                response = "OK\n".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, response.length);
+            }
+            else {
+                responseHeaders.set(ERROR_MESSAGE_HEADER, result.getErrorMessage());
+                response = (result.getErrorMessage() + "\n").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(400, response.length);
+            }
+            exchange.getResponseBody().write(response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void usage(final String error)
+    {
+        if (error != null) {
+            System.err.println(error);
+        }
+        System.err.println("usage: java -cp <gateway-verifier jar> com.alibaba.cloudapi.verifier.MockGatewayServer --key appKey:appSecret [options]\n"
+                + "  --key appKey:appSecret      accept signatures made with this key; may be repeated\n"
+                + "  --listen [host:]port        address to listen on (default 127.0.0.1:" + DEFAULT_PORT + ")\n"
+                + "  --timestamp-window seconds  allowed x-ca-timestamp skew and nonce lifetime (default "
+                + TimeUnit.MILLISECONDS.toSeconds(SignatureVerifier.DEFAULT_TIMESTAMP_WINDOW_MILLIS) + ")\n"
+                + "  --threads n                 request threads (default twice the CPU count)");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        SignatureVerifier verifier = new SignatureVerifier();
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", DEFAULT_PORT);
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int keys = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--key": {
+                        final String key = args[++i];
+                        final int colon = key.indexOf(':');
+                        if (colon <= 0) {
+                            usage("expected appKey:appSecret, got " + key);
+                        }
+                        verifier.addKey(key.substring(0, colon), key.substring(colon + 1));
+                        keys++;
+                        break;
+                    }
+                    case "--listen": {
+                        final String value = args[++i];
+                        final int colon = value.lastIndexOf(':');
+                        address = new InetSocketAddress((colon < 0) ? "127.0.0.1" : value.substring(0, colon),
+                                Integer.parseInt(value.substring(colon + 1)));
+                        break;
+                    }
+                    case "--timestamp-window":
+                        verifier.setTimestampWindowMillis(TimeUnit.SECONDS.toMillis(Long.parseLong(args[++i])));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        usage("unknown option: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException exc) {
+            usage("missing value for " + args[args.length - 1]);
+        } catch (IllegalArgumentException exc) {
+            usage(exc.getMessage());
+        }
+        if (keys == 0) {
+            usage("at least one --key is required");
+        }
+
+        final MockGatewayServer server = new MockGatewayServer(verifier, threads);
+        final int port = server.start(address);
+        System.out.printf("Mock gateway listening on %s:%d with %d key(s)%n", address.getHostString(), port, keys);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            System.out.printf("Mock gateway stopped: %d accepted, %d rejected%n", verifier.getAcceptedCount(), verifier.getRejectedCount());
+        }, "MockGateway-shutdown"));
+    }
+}
@@ -0,0 +1,300 @@
+package com.alibaba.cloudapi.verifier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/*
+Checks request signatures the way the API Gateway does, written from the gateway's documented algorithm rather than
+from the signer so the two can disagree. In order: the app key must be known, the signature method supported,
+x-ca-timestamp (if sent) within the window of the current time, the signature must match the string-to-sign rebuilt
+from the request, Content-MD5 (if sent) must match the body and x-ca-nonce (if sent) must not have been seen within
+the window. Rejections carry the gateway's X-Ca-Error-Message text; a signature mismatch includes the server's
+string-to-sign with '\n' shown as '#', as the gateway does.
+
+The string-to-sign is
+
+    method\naccept\ncontent-md5\ncontent-type\ndate\n
+    name:value\n for each name in x-ca-signature-headers, trimmed and sorted, except the system headers above
+    path[?name[=value]&...] with query and form parameters together, sorted by name
+
+where a repeated parameter uses its first value, form values win over query values and an empty value is written as
+the name alone. Instances are thread safe.
+ */
+public class SignatureVerifier
+{
+    public static final long DEFAULT_TIMESTAMP_WINDOW_MILLIS = 15 * 60 * 1000;
+
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    private static final String DEFAULT_SIGNATURE_METHOD = "HmacSHA256";
+    private static final int MIN_NONCE_PURGE_SIZE = 4096;
+
+    // never part of the header block: signature headers and the headers with their own line
+    private static final TreeSet<String> UNSIGNED_HEADER_BLOCK_NAMES = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    static {
+        UNSIGNED_HEADER_BLOCK_NAMES.add("x-ca-signature");
+        UNSIGNED_HEADER_BLOCK_NAMES.add("x-ca-signature-headers");
+        UNSIGNED_HEADER_BLOCK_NAMES.add("accept");
+        UNSIGNED_HEADER_BLOCK_NAMES.add("content-md5");
+        UNSIGNED_HEADER_BLOCK_NAMES.add("content-type");
+        UNSIGNED_HEADER_BLOCK_NAMES.add("date");
+    }
+
+    // initialized Mac instances per thread, by algorithm and secret
+    private static final ThreadLocal<Map<String, Mac>> macs = ThreadLocal.withInitial(HashMap::new);
+
+    private final Map<String, String> secrets = new ConcurrentHashMap<>(); // appKey to appSecret
+    private final Map<String, Long> nonceExpiry = new ConcurrentHashMap<>(); // appKey + ":" + nonce to expiry millis
+    private final AtomicLong nextNoncePurgeSize = new AtomicLong(MIN_NONCE_PURGE_SIZE);
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile long timestampWindowMillis = DEFAULT_TIMESTAMP_WINDOW_MILLIS;
+    private volatile LongSupplier clock = System::currentTimeMillis;
+
+    public SignatureVerifier addKey(final String appKey, final String appSecret)
+    {
+        secrets.put(appKey, appSecret);
+        return this;
+    }
+
+    /*
+    how far x-ca-timestamp may be from the current time, either way, and how long a nonce is remembered
+     */
+    public SignatureVerifier setTimestampWindowMillis(final long millis)
+    {
+        timestampWindowMillis = millis;
+        return this;
+    }
+
+    /*
+    source of the current time in milliseconds, eg a fixed clock in tests
+     */
+    public SignatureVerifier setClock(final LongSupplier clock)
+    {
+        this.clock = clock;
+        return this;
+    }
+
+    /*
+    forget all seen nonces and reset the counters
+     */
+    public void reset()
+    {
+        nonceExpiry.clear();
+        acceptedCount.set(0);
+        rejectedCount.set(0);
+    }
+
+    public long getAcceptedCount() { return acceptedCount.get(); }
+    public long getRejectedCount() { return rejectedCount.get(); }
+
+    public VerificationResult verify(final byte[] rawRequest)
+    {
+        return verify(VerifierRequest.parse(rawRequest));
+    }
+
+    public VerificationResult verify(final VerifierRequest request)
+    {
+        final VerificationResult result = check(request);
+        (result.isAccepted() ? acceptedCount : rejectedCount).incrementAndGet();
+        return result;
+    }
+
+    private VerificationResult check(final VerifierRequest request)
+    {
+        final String appKey = request.getHeader("x-ca-key");
+        if (appKey == null || appKey.isEmpty()) {
+            return VerificationResult.rejected("Empty AppKey", null);
+        }
+        final String appSecret = secrets.get(appKey);
+        if (appSecret == null) {
+            return VerificationResult.rejected("Invalid AppKey", null);
+        }
+        final String signature = request.getHeader("x-ca-signature");
+        if (signature == null || signature.isEmpty()) {
+            return VerificationResult.rejected("Empty Signature", null);
+        }
+        String signatureMethod = request.getHeader("x-ca-signature-method");
+        if (signatureMethod == null || signatureMethod.isEmpty()) {
+            signatureMethod = DEFAULT_SIGNATURE_METHOD;
+        }
+        if (!signatureMethod.equals("HmacSHA256") && !signatureMethod.equals("HmacSHA1")) {
+            return VerificationResult.rejected("Invalid Signature Method", null);
+        }
+
+        final long now = clock.getAsLong();
+        final long window = timestampWindowMillis;
+        final String timestamp = request.getHeader("x-ca-timestamp");
+        if (timestamp != null) {
+            final long millis;
+            try {
+                millis = Long.parseLong(timestamp.trim());
+            } catch (NumberFormatException exc) {
+                return VerificationResult.rejected("Invalid Timestamp", null);
+            }
+            if (Math.abs(now - millis) > window) {
+                return VerificationResult.rejected("Timestamp Expired", null);
+            }
+        }
+
+        final String stringToSign;
+        try {
+            stringToSign = buildStringToSign(request);
+        } catch (IllegalArgumentException exc) {
+            return VerificationResult.rejected("Invalid Url Parameter", null);
+        }
+        final String expected = hmac(signatureMethod, appSecret, stringToSign);
+        if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.ISO_8859_1), signature.trim().getBytes(StandardCharsets.ISO_8859_1))) {
+            return VerificationResult.rejected("Invalid Signature, Server StringToSign:`"
+                    + stringToSign.replace('\n', '#').replace("\r", "") + "`", stringToSign);
+        }
+
+        final String contentMd5 = request.getHeader("content-md5");
+        if (contentMd5 != null && request.getBody().length > 0 && !contentMd5.trim().equals(md5(request.getBody()))) {
+            return VerificationResult.rejected("Invalid Content-MD5", stringToSign);
+        }
+
+        // only once the signature is known good, so a bad request can not use up a nonce
+        final String nonce = request.getHeader("x-ca-nonce");
+        if (nonce != null && !rememberNonce(appKey + ":" + nonce, now, window)) {
+            return VerificationResult.rejected("Nonce Used", stringToSign);
+        }
+        return VerificationResult.accepted(stringToSign);
+    }
+
+    /*
+    false if the nonce was already seen within the window
+     */
+    private boolean rememberNonce(final String key, final long now, final long window)
+    {
+        final Long previous = nonceExpiry.putIfAbsent(key, now + window);
+        if (previous != null) {
+            if (previous > now || !nonceExpiry.replace(key, previous, now + window)) {
+                return false;
+            }
+        }
+        final long size = nonceExpiry.size();
+        final long purgeSize = nextNoncePurgeSize.get();
+        if (size >= purgeSize && nextNoncePurgeSize.compareAndSet(purgeSize, Long.MAX_VALUE)) {
+            nonceExpiry.values().removeIf(expiry -> expiry <= now);
+            nextNoncePurgeSize.set(Math.max(MIN_NONCE_PURGE_SIZE, 2L * nonceExpiry.size()));
+        }
+        return true;
+    }
+
+    public static String buildStringToSign(final VerifierRequest request)
+    {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(request.getMethod().toUpperCase(Locale.ROOT)).append('\n');
+        sb.append(valueOrEmpty(request.getHeader("accept"))).append('\n');
+        sb.append(valueOrEmpty(request.getHeader("content-md5"))).append('\n');
+        sb.append(valueOrEmpty(request.getHeader("content-type"))).append('\n');
+        sb.append(valueOrEmpty(request.getHeader("date"))).append('\n');
+
+        final String signatureHeaders = request.getHeader("x-ca-signature-headers");
+        if (signatureHeaders != null) {
+            TreeSet<String> names = new TreeSet<>();
+            for (String name : signatureHeaders.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty() && !UNSIGNED_HEADER_BLOCK_NAMES.contains(name)) {
+                    names.add(name);
+                }
+            }
+            for (String name : names) {
+                sb.append(name).append(':').append(valueOrEmpty(request.getHeader(name))).append('\n');
+            }
+        }
+
+        sb.append(request.getPath());
+        TreeMap<String, String> params = new TreeMap<>();
+        final String contentType = request.getHeader("content-type");
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(FORM_CONTENT_TYPE)
+                && !request.getMethod().equalsIgnoreCase("GET") && !request.getMethod().equalsIgnoreCase("HEAD")) {
+            addParams(params, new String(request.getBody(), StandardCharsets.UTF_8));
+        }
+        addParams(params, request.getQuery());
+        char separator = '?';
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            sb.append(separator).append(param.getKey());
+            if (!param.getValue().isEmpty()) {
+                sb.append('=').append(param.getValue());
+            }
+            separator = '&';
+        }
+        return sb.toString();
+    }
+
+    /*
+    add decoded parameters whose names are not there yet. throws IllegalArgumentException on a malformed escape.
+     */
+    private static void addParams(final Map<String, String> params, final String encoded)
+    {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            final int equals = pair.indexOf('=');
+            final String name = decode((equals < 0) ? pair : pair.substring(0, equals));
+            final String value = (equals < 0) ? "" : decode(pair.substring(equals + 1));
+            if (!name.trim().isEmpty()) {
+                params.putIfAbsent(name, value);
+            }
+        }
+    }
+
+    private static String decode(final String s)
+    {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    private static String valueOrEmpty(final String value)
+    {
+        return (value == null) ? "" : value;
+    }
+
+    private static String hmac(final String algorithm, final String secret, final String stringToSign)
+    {
+        try {
+            final Map<String, Mac> threadMacs = macs.get();
+            final String macKey = algorithm + ":" + secret;
+            Mac mac = threadMacs.get(macKey);
+            if (mac == null) {
+                mac = Mac.getInstance(algorithm);
+                mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm));
+                threadMacs.put(macKey, mac);
+            }
+            return Base64.getEncoder().encodeToString(mac.doFinal(stringToSign.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+
+    private static String md5(final byte[] body)
+    {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(body));
+        } catch (GeneralSecurityException exc) {
+            throw new IllegalStateException(exc);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.alibaba.cloudapi.verifier;
+
+/*
+Outcome of verifying one request. A rejected request carries the message the gateway would return in
+X-Ca-Error-Message; the string-to-sign the verifier computed is kept once it got that far, for comparison with the
+signer's.
+ */
+public final class VerificationResult
+{
+    private final String errorMessage; // null when accepted
+    private final String stringToSign;
+
+    private VerificationResult(String errorMessage, String stringToSign)
+    {
+        this.errorMessage = errorMessage;
+        this.stringToSign = stringToSign;
+    }
+
+    static VerificationResult accepted(final String stringToSign)
+    {
+        return new VerificationResult(null, stringToSign);
+    }
+
+    static VerificationResult rejected(final String errorMessage, final String stringToSign)
+    {
+        return new VerificationResult(errorMessage, stringToSign);
+    }
+
+    public boolean isAccepted() { return errorMessage == null; }
+    public String getErrorMessage() { return errorMessage; }
+
+    /*
+    the string-to-sign rebuilt from the request, or null if verification stopped before it was built
+     */
+    public String getStringToSign() { return stringToSign; }
+
+    @Override
+    public String toString()
+    {
+        return isAccepted() ? "accepted" : errorMessage;
+    }
+}
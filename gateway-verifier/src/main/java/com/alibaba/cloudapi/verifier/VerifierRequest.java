@@ -0,0 +1,114 @@
+package com.alibaba.cloudapi.verifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+A request as the gateway receives it: method, raw path and query, headers by name ignoring case, and body bytes.
+Built from a raw HTTP message, eg the output of the signer, or from the parts of a request received by a server.
+ */
+public final class VerifierRequest
+{
+    private final String method;
+    private final String path;
+    private final String query; // raw, without '?', or null
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+
+    public VerifierRequest(final String method, final String path, final String query,
+                           final Map<String, List<String>> headers, final byte[] body)
+    {
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        TreeMap<String, List<String>> copy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            copy.computeIfAbsent(header.getKey(), name -> new ArrayList<>()).addAll(header.getValue());
+        }
+        this.headers = Collections.unmodifiableMap(copy);
+        this.body = (body == null) ? new byte[0] : body;
+    }
+
+    /*
+    Parse a complete raw request message. The request target may be in origin-form or absolute-form, header values
+    are decoded as UTF-8 and the body is everything after the empty line.
+     */
+    public static VerifierRequest parse(final byte[] message)
+    {
+        int headEnd = -1;
+        int bodyStart = message.length;
+        for (int i = 0; i < message.length; i++) {
+            if (message[i] == '\n' && i + 1 < message.length) {
+                if (message[i + 1] == '\n') {
+                    headEnd = i;
+                    bodyStart = i + 2;
+                    break;
+                }
+                if (message[i + 1] == '\r' && i + 2 < message.length && message[i + 2] == '\n') {
+                    headEnd = i;
+                    bodyStart = i + 3;
+                    break;
+                }
+            }
+        }
+        final String head = new String(message, 0, (headEnd < 0) ? message.length : headEnd, StandardCharsets.ISO_8859_1);
+        final String[] lines = head.split("\r?\n");
+        final String[] requestLine = lines[0].split(" ");
+        if (requestLine.length < 2) {
+            throw new IllegalArgumentException("malformed request line: " + lines[0]);
+        }
+
+        String target = requestLine[1];
+        final int schemeEnd = target.indexOf("://");
+        if (schemeEnd > 0) {
+            final int pathStart = target.indexOf('/', schemeEnd + 3);
+            target = (pathStart < 0) ? "/" : target.substring(pathStart);
+        }
+        final int queryStart = target.indexOf('?');
+
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 1; i < lines.length; i++) {
+            final int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headers.computeIfAbsent(lines[i].substring(0, colon), name -> new ArrayList<>())
+                        .add(decodeHeaderValue(lines[i].substring(colon + 1).trim()));
+            }
+        }
+        return new VerifierRequest(requestLine[0],
+                (queryStart < 0) ? target : target.substring(0, queryStart),
+                (queryStart < 0) ? null : target.substring(queryStart + 1),
+                headers, Arrays.copyOfRange(message, bodyStart, message.length));
+    }
+
+    /*
+    header values are UTF-8 on the wire. value holds one char per byte, as when the bytes are decoded as ISO-8859-1.
+     */
+    public static String decodeHeaderValue(final String value)
+    {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return new String(value.getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+            }
+        }
+        return value;
+    }
+
+    public String getMethod() { return method; }
+    public String getPath() { return path; }
+    public String getQuery() { return query; }
+    public byte[] getBody() { return body; }
+
+    /*
+    value of a header, ignoring case, or null. if the header is repeated the last value is used.
+     */
+    public String getHeader(final String name)
+    {
+        final List<String> values = headers.get(name);
+        return (values == null || values.isEmpty()) ? null : values.get(values.size() - 1);
+    }
+}
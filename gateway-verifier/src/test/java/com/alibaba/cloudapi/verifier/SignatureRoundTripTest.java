@@ -0,0 +1,191 @@
+package com.alibaba.cloudapi.verifier;
+
+import com.alibaba.cloudapi.client.RequestSigner;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+Signs random requests with signer-core and checks that the verifier accepts every one of them, then that tampered and
+replayed requests are refused. The shapes cover system headers, Date in either case, Accept and the Content-*
+headers named in x-ca-signature-headers, and spaces or empty entries between the names.
+ */
+public class SignatureRoundTripTest
+{
+    private static final String APP_KEY = "203812345";
+    private static final String APP_SECRET = "c2VjcmV0";
+    private static final int REQUESTS_PER_SEED = 5000;
+    private static final long[] SEEDS = {11, 12, 13, 14};
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "HEAD"};
+    private static final String[] SEPARATORS = {",", ", ", " , ", ",,"};
+    private static final String[] UNSIGNED_LISTED = {"accept", "Content-Type", "content-md5"};
+
+    private static final String SIGNED_POST = "POST /x?a=1 HTTP/1.1\r\nHost: h\r\nContent-Type: application/json\r\n"
+            + "x-ca-key: " + APP_KEY + "\r\nx-ca-signature-headers: x-ca-key,x-ca-timestamp,x-ca-nonce\r\n\r\n{\"a\":1}";
+
+    @Test
+    public void randomRequestsVerify()
+    {
+        for (long seed : SEEDS) {
+            roundTrip(seed);
+        }
+    }
+
+    @Test
+    public void tamperedRequestsAreRejected()
+    {
+        final RequestSigner signer = new RequestSigner(APP_KEY, APP_SECRET, false);
+        final String signed = latin1(signer.sign(SIGNED_POST.getBytes(StandardCharsets.ISO_8859_1), "http", "h", 80));
+
+        // a fresh nonce each, so only the tampered part can cause the rejection
+        assertRejected("Invalid Signature", withNonce(signed.replace("?a=1", "?a=2"), "n1"));
+        assertRejected("Invalid Signature", withNonce(signed.replace("{\"a\":1}", "{\"a\":2}"), "n2"));
+        assertRejected("Invalid AppKey", signed.replace(APP_KEY, "999"));
+    }
+
+    @Test
+    public void expiredTimestampIsRejected()
+    {
+        final RequestSigner signer = new RequestSigner(APP_KEY, APP_SECRET, false);
+        final byte[] signed = signer.sign(SIGNED_POST.getBytes(StandardCharsets.ISO_8859_1), "http", "h", 80);
+        final SignatureVerifier verifier = newVerifier()
+                .setClock(() -> System.currentTimeMillis() + SignatureVerifier.DEFAULT_TIMESTAMP_WINDOW_MILLIS + 60_000);
+        assertEquals("Timestamp Expired", verifier.verify(signed).getErrorMessage());
+    }
+
+    @Test
+    public void replayedNonceIsRejected()
+    {
+        final RequestSigner signer = new RequestSigner(APP_KEY, APP_SECRET, false);
+        final byte[] signed = signer.sign(SIGNED_POST.getBytes(StandardCharsets.ISO_8859_1), "http", "h", 80);
+        final SignatureVerifier verifier = newVerifier();
+        assertTrue(verifier.verify(signed).isAccepted());
+        assertEquals("Nonce Used", verifier.verify(signed).getErrorMessage());
+    }
+
+    private static void roundTrip(final long seed)
+    {
+        final Random random = new Random(seed);
+        final RequestSigner signer = new RequestSigner(APP_KEY, APP_SECRET, random.nextBoolean());
+        final SignatureVerifier verifier = newVerifier();
+        final Map<String, Integer> failures = new TreeMap<>();
+        String firstFailure = null;
+
+        for (int n = 0; n < REQUESTS_PER_SEED; n++) {
+            final byte[] signed = signer.sign(randomRequest(random), "http", "h.example", 80);
+            final VerificationResult result = verifier.verify(signed);
+            if (!result.isAccepted()) {
+                failures.merge(result.getErrorMessage().replaceAll(",.*", ""), 1, Integer::sum);
+                if (firstFailure == null) {
+                    firstFailure = result.getErrorMessage() + "\n" + new String(signed, StandardCharsets.UTF_8);
+                }
+            }
+            else if (n % 100 == 0 && !"Nonce Used".equals(verifier.verify(signed).getErrorMessage())) {
+                failures.merge("replay not detected", 1, Integer::sum);
+            }
+        }
+        if (!failures.isEmpty()) {
+            fail(String.format("seed %d: %s\n%s", seed, failures, firstFailure));
+        }
+    }
+
+    private static byte[] randomRequest(final Random random)
+    {
+        final String method = METHODS[random.nextInt(METHODS.length)];
+        final StringBuilder target = new StringBuilder("/p/" + random.nextInt(5));
+        final int queryCount = random.nextInt(5);
+        for (int i = 0; i < queryCount; i++) {
+            target.append(i == 0 ? "?" : "&").append("k").append(random.nextInt(4));
+            if (random.nextInt(4) != 0) {
+                target.append("=v%C3%A9+").append(random.nextInt(99));
+            }
+        }
+
+        final StringBuilder head = new StringBuilder(method + " " + target + " HTTP/1.1\r\nHost: h.example\r\n");
+        final List<String> listed = new ArrayList<>(Arrays.asList("x-ca-key", "x-ca-nonce", "x-ca-timestamp", "x-ca-signature-method"));
+        final int headerCount = random.nextInt(4);
+        for (int i = 0; i < headerCount; i++) {
+            final String name = "x-h" + random.nextInt(6);
+            listed.add(random.nextBoolean() ? name : name.toUpperCase());
+            head.append(name).append(": val\u00e9").append(random.nextInt(9)).append("\r\n");
+        }
+        if (random.nextInt(3) == 0) {
+            head.append("Accept: application/json\r\n");
+        }
+        // Date listed but absent, or present as Date or date
+        final int dateShape = random.nextInt(4);
+        if (dateShape == 1) {
+            listed.add(random.nextBoolean() ? "date" : "Date");
+        }
+        else if (dateShape >= 2) {
+            head.append(dateShape == 2 ? "Date" : "date").append(": Sun, 18 Oct 2026 16:42:59 GMT\r\n");
+        }
+        if (random.nextInt(4) == 0) {
+            listed.add(UNSIGNED_LISTED[random.nextInt(UNSIGNED_LISTED.length)]);
+        }
+        Collections.shuffle(listed, random);
+        final StringBuilder signatureHeaders = new StringBuilder();
+        for (String name : listed) {
+            if (signatureHeaders.length() > 0) {
+                signatureHeaders.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            signatureHeaders.append(name);
+        }
+        head.append("x-ca-key: ").append(APP_KEY).append("\r\nx-ca-signature-headers: ").append(signatureHeaders).append("\r\n");
+
+        byte[] body = new byte[0];
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            switch (random.nextInt(3)) {
+                case 1:
+                    head.append("Content-Type: application/x-www-form-urlencoded; charset=UTF-8\r\n");
+                    body = ("f" + random.nextInt(3) + "=a%20b&k" + random.nextInt(4) + "=form&f1=" + random.nextInt(9))
+                            .getBytes(StandardCharsets.ISO_8859_1);
+                    break;
+                case 2:
+                    head.append("Content-Type: application/json\r\n");
+                    body = ("{\"a\":" + random.nextInt() + "}").getBytes(StandardCharsets.ISO_8859_1);
+                    break;
+            }
+        }
+        head.append("Content-Length: ").append(body.length).append("\r\n\r\n");
+
+        final byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        final byte[] request = Arrays.copyOf(headBytes, headBytes.length + body.length);
+        System.arraycopy(body, 0, request, headBytes.length, body.length);
+        return request;
+    }
+
+    private static SignatureVerifier newVerifier()
+    {
+        return new SignatureVerifier().addKey(APP_KEY, APP_SECRET);
+    }
+
+    private static void assertRejected(final String expectedPrefix, final String request)
+    {
+        final VerificationResult result = newVerifier().verify(request.getBytes(StandardCharsets.ISO_8859_1));
+        assertTrue("expected " + expectedPrefix + ", got " + result,
+                !result.isAccepted() && result.getErrorMessage().startsWith(expectedPrefix));
+    }
+
+    private static String withNonce(final String request, final String nonce)
+    {
+        return request.replaceAll("x-ca-nonce: [^\r]*", "x-ca-nonce: " + nonce);
+    }
+
+    private static String latin1(final byte[] bytes)
+    {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
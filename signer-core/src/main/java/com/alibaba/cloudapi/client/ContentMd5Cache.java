@@ -0,0 +1,182 @@
+package com.alibaba.cloudapi.client;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Remembers the Content-MD5 of recently signed bodies. Repeater, Intruder and Scanner often re-sign the same large
+body many times; comparing it against a cached copy is much cheaper than hashing it again.
+
+Bodies are looked up by length and a fast hash of sampled regions. A candidate is only used after a full byte
+comparison with the cached copy, so a fingerprint collision can never produce a wrong digest. The cache is an LRU
+bounded by the total size of the cached bodies. Every miss copies the body, which only pays off when the same bodies
+really are signed again, so HttpUtil does not use a cache unless one is set.
+ */
+public class ContentMd5Cache
+{
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    // hashing a small body is cheaper than fingerprinting, comparing and copying it
+    public static final int DEFAULT_MIN_BODY_SIZE = 16 * 1024;
+
+    private static final int EDGE_SAMPLE_SIZE = 1024;
+    private static final int INNER_SAMPLE_COUNT = 16;
+    private static final int INNER_SAMPLE_SIZE = 64;
+
+    private static final class Key
+    {
+        final int length;
+        final long fingerprint;
+
+        Key(int length, long fingerprint)
+        {
+            this.length = length;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return length == other.length && fingerprint == other.fingerprint;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(length, fingerprint);
+        }
+    }
+
+    private static final class Entry
+    {
+        final ByteBuffer body;
+        final String contentMd5;
+
+        Entry(ByteBuffer body, String contentMd5)
+        {
+            this.body = body;
+            this.contentMd5 = contentMd5;
+        }
+    }
+
+    private final long maxBytes;
+    private final int minBodySize;
+    // access ordered for LRU eviction. guarded by this.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ContentMd5Cache()
+    {
+        this(DEFAULT_MAX_BYTES, DEFAULT_MIN_BODY_SIZE);
+    }
+
+    public ContentMd5Cache(final long maxBytes, final int minBodySize)
+    {
+        this.maxBytes = maxBytes;
+        this.minBodySize = minBodySize;
+    }
+
+    /*
+    Content-MD5 of the remaining bytes of body. body's position is not changed.
+     */
+    public String get(final ByteBuffer body)
+    {
+        final int length = body.remaining();
+        if (length < minBodySize || length > maxBytes) {
+            return HttpUtil.base64AndMD5(body);
+        }
+
+        final Key key = new Key(length, fingerprint(body));
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.body.equals(body)) {
+            hits.increment();
+            return entry.contentMd5;
+        }
+
+        misses.increment();
+        final String contentMd5 = HttpUtil.base64AndMD5(body);
+        ByteBuffer copy = ByteBuffer.allocate(length);
+        copy.put(body.duplicate());
+        copy.flip();
+        put(key, new Entry(copy.asReadOnlyBuffer(), contentMd5));
+        return contentMd5;
+    }
+
+    private synchronized void put(final Key key, final Entry entry)
+    {
+        final Entry replaced = entries.put(key, entry);
+        if (replaced != null) {
+            cachedBytes -= replaced.body.capacity();
+        }
+        cachedBytes += entry.body.capacity();
+
+        // evict least recently used bodies
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            final Entry evicted = iterator.next().getValue();
+            iterator.remove();
+            cachedBytes -= evicted.body.capacity();
+        }
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    public double getHitRate()
+    {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return (total == 0) ? 0.0 : (double) h / total;
+    }
+
+    public synchronized long getCachedBytes() { return cachedBytes; }
+
+    /*
+    FNV-1a over the first and last EDGE_SAMPLE_SIZE bytes and INNER_SAMPLE_COUNT evenly spaced samples in between
+     */
+    static long fingerprint(final ByteBuffer body)
+    {
+        final int start = body.position();
+        final int length = body.remaining();
+        long hash = 0xcbf29ce484222325L;
+
+        final int edge = Math.min(EDGE_SAMPLE_SIZE, length);
+        for (int i = 0; i < edge; i++) {
+            hash = (hash ^ (body.get(start + i) & 0xff)) * 0x100000001b3L;
+        }
+        for (int i = Math.max(edge, length - EDGE_SAMPLE_SIZE); i < length; i++) {
+            hash = (hash ^ (body.get(start + i) & 0xff)) * 0x100000001b3L;
+        }
+
+        final int inner = length - 2 * EDGE_SAMPLE_SIZE;
+        if (inner > INNER_SAMPLE_COUNT * INNER_SAMPLE_SIZE) {
+            final int stride = inner / INNER_SAMPLE_COUNT;
+            for (int s = 0; s < INNER_SAMPLE_COUNT; s++) {
+                final int sampleStart = start + EDGE_SAMPLE_SIZE + s * stride;
+                for (int i = 0; i < INNER_SAMPLE_SIZE; i++) {
+                    hash = (hash ^ (body.get(sampleStart + i) & 0xff)) * 0x100000001b3L;
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,176 @@
+package com.alibaba.cloudapi.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Request headers in their original order. Lookups ignore case and duplicate header names are kept.
+ */
+public class HeaderList
+{
+    private final List<String> names;
+    private final List<String> values;
+
+    public HeaderList()
+    {
+        this.names = new ArrayList<>();
+        this.values = new ArrayList<>();
+    }
+
+    public HeaderList(final int expectedSize)
+    {
+        this.names = new ArrayList<>(expectedSize);
+        this.values = new ArrayList<>(expectedSize);
+    }
+
+    public HeaderList(final HeaderList other)
+    {
+        this.names = new ArrayList<>(other.names);
+        this.values = new ArrayList<>(other.values);
+    }
+
+    /*
+    headers in the map's iteration order
+     */
+    public static HeaderList fromMap(final Map<String, String> map)
+    {
+        HeaderList headers = new HeaderList(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            headers.add(entry.getKey(), entry.getValue());
+        }
+        return headers;
+    }
+
+    public int size() { return names.size(); }
+    public String getName(final int index) { return names.get(index); }
+    public String getValue(final int index) { return values.get(index); }
+
+    public void add(final String name, final String value)
+    {
+        names.add(name);
+        values.add(value);
+    }
+
+    /*
+    Set a header in place. The first header whose name matches, ignoring case, takes the given name and value and
+    keeps its position; any later headers with the same name are removed. If there is none, the header is appended.
+     */
+    public void set(final String name, final String value)
+    {
+        final int index = indexOf(name);
+        if (index < 0) {
+            add(name, value);
+            return;
+        }
+        names.set(index, name);
+        values.set(index, value);
+        for (int i = names.size() - 1; i > index; i--) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                names.remove(i);
+                values.remove(i);
+            }
+        }
+    }
+
+    /*
+    remove every header with the given name. returns the number removed.
+     */
+    public int remove(final String name)
+    {
+        int removed = 0;
+        for (int i = names.size() - 1; i >= 0; i--) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                names.remove(i);
+                values.remove(i);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /*
+    returns the index of the first header with the given name, or -1
+     */
+    public int indexOf(final String name)
+    {
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+    returns the value of the first header with the given name, or null
+     */
+    public String get(final String name)
+    {
+        final int index = indexOf(name);
+        return (index < 0) ? null : values.get(index);
+    }
+
+    public List<String> getAll(final String name)
+    {
+        List<String> result = new ArrayList<>(1);
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                result.add(values.get(i));
+            }
+        }
+        return result;
+    }
+
+    /*
+    map of header name, as it appears in the request, to value, in request order. if a name is repeated, the last
+    value wins.
+     */
+    public HashMap<String, String> toMap()
+    {
+        HashMap<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            map.put(names.get(i), values.get(i));
+        }
+        return map;
+    }
+
+    /*
+    stable sort by header name, ignoring case, then by value
+     */
+    public void sortByName()
+    {
+        final int size = names.size();
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            final int byName = String.CASE_INSENSITIVE_ORDER.compare(names.get(a), names.get(b));
+            return (byName != 0) ? byName : String.CASE_INSENSITIVE_ORDER.compare(String.valueOf(values.get(a)), String.valueOf(values.get(b)));
+        });
+        List<String> sortedNames = new ArrayList<>(size);
+        List<String> sortedValues = new ArrayList<>(size);
+        for (Integer i : order) {
+            sortedNames.add(names.get(i));
+            sortedValues.add(values.get(i));
+        }
+        names.clear();
+        names.addAll(sortedNames);
+        values.clear();
+        values.addAll(sortedValues);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            sb.append(names.get(i)).append(": ").append(values.get(i)).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.alibaba.cloudapi.client;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/*
+The body of a request to be signed: form parameters, which are part of the string-to-sign, or raw bytes, which are
+covered by Content-MD5. Only what signing needs is kept; the body itself is never serialized here.
+ */
+public final class HttpBody
+{
+    private static final HttpBody EMPTY = new HttpBody(null, null, null);
+
+    private final String contentType;
+    private final ParameterList formParams;
+    private final ByteBuffer bytes;
+
+    private HttpBody(String contentType, ParameterList formParams, ByteBuffer bytes)
+    {
+        this.contentType = contentType;
+        this.formParams = formParams;
+        this.bytes = bytes;
+    }
+
+    public static HttpBody empty()
+    {
+        return EMPTY;
+    }
+
+    public static HttpBody form(final String contentType, final Map<String, String> formParams)
+    {
+        return new HttpBody(contentType, ParameterList.fromMap(formParams), null);
+    }
+
+    public static HttpBody form(final String contentType, final ParameterList formParams)
+    {
+        return new HttpBody(contentType, (formParams == null) ? ParameterList.empty() : formParams, null);
+    }
+
+    /*
+    bytes are read from their current position to their limit. the buffer itself is not modified.
+     */
+    public static HttpBody bytes(final String contentType, final ByteBuffer bytes)
+    {
+        return new HttpBody(contentType, null, bytes);
+    }
+
+    public String getContentType() { return contentType; }
+    public ByteBuffer getBytes() { return bytes; }
+
+    /*
+    form parameters, never null
+     */
+    public ParameterList getFormParams() { return (formParams == null) ? ParameterList.empty() : formParams; }
+
+    public boolean hasFormParams()
+    {
+        return formParams != null && !formParams.isEmpty();
+    }
+
+    public boolean hasBytes()
+    {
+        return bytes != null && bytes.hasRemaining();
+    }
+}
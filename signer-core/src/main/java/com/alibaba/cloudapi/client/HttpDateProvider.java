@@ -0,0 +1,98 @@
+package com.alibaba.cloudapi.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/*
+Supplies the Date header value and x-ca-timestamp for a signature. The RFC 1123 date only changes once per second,
+so it is formatted once per second and shared by every request signed within that second. The clock can be
+replaced, for tests or to correct for skew between this host and the gateway.
+ */
+public class HttpDateProvider
+{
+    // same output as SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z") in GMT. DateTimeFormatter.RFC_1123_DATE_TIME
+    // does not zero-pad the day of month.
+    public static final DateTimeFormatter HTTP_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private static final HttpDateProvider systemProvider = new HttpDateProvider(Clock.systemUTC());
+
+    public static final class Timestamp
+    {
+        private final long epochMillis;
+        private final String httpDate;
+
+        private Timestamp(long epochMillis, String httpDate)
+        {
+            this.epochMillis = epochMillis;
+            this.httpDate = httpDate;
+        }
+
+        public long getEpochMillis() { return epochMillis; }
+        public String getHttpDate() { return httpDate; }
+    }
+
+    // the most recently formatted second and its date string
+    private static final class CachedDate
+    {
+        final long epochSecond;
+        final String httpDate;
+
+        CachedDate(long epochSecond, String httpDate)
+        {
+            this.epochSecond = epochSecond;
+            this.httpDate = httpDate;
+        }
+    }
+
+    private final Clock clock;
+    private volatile CachedDate cachedDate = new CachedDate(Long.MIN_VALUE, null);
+
+    public HttpDateProvider(final Clock clock)
+    {
+        this.clock = clock;
+    }
+
+    public static HttpDateProvider system()
+    {
+        return systemProvider;
+    }
+
+    /*
+    provider whose clock is shifted by offset, eg the difference between the gateway's clock and ours
+     */
+    public HttpDateProvider withOffset(final Duration offset)
+    {
+        return new HttpDateProvider(Clock.offset(clock, offset));
+    }
+
+    public Clock getClock() { return clock; }
+
+    public Timestamp now()
+    {
+        final long millis = clock.millis();
+        return new Timestamp(millis, httpDate(millis));
+    }
+
+    public String httpDate(final long epochMillis)
+    {
+        final long epochSecond = Math.floorDiv(epochMillis, 1000L);
+        CachedDate cached = cachedDate;
+        if (cached.epochSecond == epochSecond) {
+            return cached.httpDate;
+        }
+
+        final String httpDate = HTTP_DATE_FORMAT.format(Instant.ofEpochSecond(epochSecond));
+        // only move the cache forward, so a thread that read the clock just before a second boundary does not
+        // evict the newer value. a larger step back means the clock itself was changed. benign race: threads
+        // crossing a boundary may each format the same value.
+        if (epochSecond > cached.epochSecond || cached.epochSecond - epochSecond > 1) {
+            cachedDate = new CachedDate(epochSecond, httpDate);
+        }
+        return httpDate;
+    }
+}
@@ -0,0 +1,284 @@
+package com.alibaba.cloudapi.client;
+
+import com.alibaba.cloudapi.client.constant.Constants;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+A raw HTTP request parsed once. Holds the request line, headers, target URL, query parameters and the location of
+the body within the original bytes so the signing pipeline never has to parse the same message twice.
+ */
+public class HttpRequestContext
+{
+    private final byte[] request;
+    private final String requestLine;
+    private final String method;
+    private final String path;
+    private final String query; // raw query string without '?', or null
+    private final HeaderList headers;
+    private final int bodyOffset;
+    private final URL url;
+    private ParameterList queryParams;
+
+    private HttpRequestContext(byte[] request, String requestLine, String method, String path, String query,
+                               HeaderList headers, int bodyOffset, URL url)
+    {
+        this.request = request;
+        this.requestLine = requestLine;
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.headers = headers;
+        this.bodyOffset = bodyOffset;
+        this.url = url;
+    }
+
+    /*
+    Parse request bytes. protocol, host and port identify the service the request is sent to and are used to build
+    the request URL. Header bytes are decoded as ISO-8859-1.
+     */
+    public static HttpRequestContext parse(final byte[] request, final String protocol, final String host, final int port)
+    {
+        if (request == null) {
+            throw new IllegalArgumentException("request can not be null");
+        }
+
+        // request line and headers end at the first empty line
+        HeaderList headers = new HeaderList(16);
+        String requestLine = null;
+        int lineStart = 0;
+        int bodyOffset = request.length;
+        for (int i = 0; i < request.length; i++) {
+            if (request[i] != '\n') {
+                continue;
+            }
+            int lineEnd = (i > lineStart && request[i - 1] == '\r') ? i - 1 : i;
+            if (lineEnd == lineStart) {
+                bodyOffset = i + 1;
+                break;
+            }
+            final String line = new String(request, lineStart, lineEnd - lineStart, Constants.CLOUDAPI_HEADER_ENCODING);
+            if (requestLine == null) {
+                requestLine = line;
+            }
+            else {
+                final int colon = line.indexOf(':');
+                if (colon > 0) {
+                    int valueStart = colon + 1;
+                    while (valueStart < line.length() && line.charAt(valueStart) == ' ') {
+                        valueStart++;
+                    }
+                    headers.add(line.substring(0, colon), line.substring(valueStart));
+                }
+            }
+            lineStart = i + 1;
+        }
+        if (requestLine == null) {
+            // no line terminator at all
+            requestLine = new String(request, Constants.CLOUDAPI_HEADER_ENCODING);
+        }
+
+        final String[] parts = requestLine.split(" ", 3);
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Malformed request line: " + requestLine);
+        }
+        final String method = parts[0];
+        String target = parts[1];
+
+        // absolute-form target, as sent to a proxy
+        final int schemeEnd = target.indexOf("://");
+        if (schemeEnd > 0 && schemeEnd < target.indexOf('/')) {
+            final int pathStart = target.indexOf('/', schemeEnd + 3);
+            target = (pathStart < 0) ? "/" : target.substring(pathStart);
+        }
+
+        final int queryStart = target.indexOf('?');
+        final String path = (queryStart < 0) ? target : target.substring(0, queryStart);
+        final String query = (queryStart < 0) ? null : target.substring(queryStart + 1);
+
+        URL url;
+        try {
+            url = new URL(protocol, host, port, target);
+        } catch (MalformedURLException exc) {
+            throw new IllegalArgumentException("Invalid request URL: " + exc.getMessage());
+        }
+
+        return new HttpRequestContext(request, requestLine, method, path, query, headers, bodyOffset, url);
+    }
+
+    /*
+    parse the bytes from the buffer's position to its limit. they are copied; the buffer itself is not modified.
+     */
+    public static HttpRequestContext parse(final ByteBuffer request, final String protocol, final String host, final int port)
+    {
+        if (request == null) {
+            throw new IllegalArgumentException("request can not be null");
+        }
+        byte[] bytes = new byte[request.remaining()];
+        request.duplicate().get(bytes);
+        return parse(bytes, protocol, host, port);
+    }
+
+    /*
+    the same request sent to another service. nothing is parsed again.
+     */
+    public HttpRequestContext withService(final String protocol, final String host, final int port)
+    {
+        final URL serviceUrl;
+        try {
+            serviceUrl = new URL(protocol, host, port, url.getFile());
+        } catch (MalformedURLException exc) {
+            throw new IllegalArgumentException("Invalid request URL: " + exc.getMessage());
+        }
+        return new HttpRequestContext(request, requestLine, method, path, query, headers, bodyOffset, serviceUrl);
+    }
+
+    public byte[] getRequest() { return request; }
+    public String getRequestLine() { return requestLine; }
+    public String getMethod() { return method; }
+    public String getPath() { return path; }
+    public String getQuery() { return query; }
+    public HeaderList getHeaders() { return headers; }
+    public URL getUrl() { return url; }
+    public String getHost() { return url.getHost(); }
+    public int getBodyOffset() { return bodyOffset; }
+    public int getBodyLength() { return request.length - bodyOffset; }
+
+    /*
+    read-only view of the body. no bytes are copied.
+     */
+    public ByteBuffer getBodyView()
+    {
+        return ByteBuffer.wrap(request, bodyOffset, getBodyLength()).slice().asReadOnlyBuffer();
+    }
+
+    /*
+    copy of the body bytes
+     */
+    public byte[] getBody()
+    {
+        return Arrays.copyOfRange(request, bodyOffset, request.length);
+    }
+
+    /*
+    Build a new message from this request's request line, the given headers and this request's body. The message is
+    sized up front and written once: the request line and header names as ISO-8859-1, header values as UTF-8 (the
+    bytes that are signed), and the body copied straight from the original request.
+     */
+    public byte[] buildMessage(final HeaderList headers)
+    {
+        final int headerCount = headers.size();
+        int headerLength = requestLine.length() + 2 + 2; // request line and empty line
+        for (int i = 0; i < headerCount; i++) {
+            headerLength += headers.getName(i).length() + 2 + utf8Length(headerValue(headers, i)) + 2;
+        }
+
+        final int bodyLength = getBodyLength();
+        byte[] message = new byte[headerLength + bodyLength];
+        int position = writeLatin1(requestLine, message, 0);
+        message[position++] = '\r';
+        message[position++] = '\n';
+        for (int i = 0; i < headerCount; i++) {
+            position = writeLatin1(headers.getName(i), message, position);
+            message[position++] = ':';
+            message[position++] = ' ';
+            position = writeUtf8(headerValue(headers, i), message, position);
+            message[position++] = '\r';
+            message[position++] = '\n';
+        }
+        message[position++] = '\r';
+        message[position++] = '\n';
+        System.arraycopy(request, bodyOffset, message, position, bodyLength);
+        return message;
+    }
+
+    private static String headerValue(final HeaderList headers, final int index)
+    {
+        final String value = headers.getValue(index);
+        return (value == null) ? "null" : value;
+    }
+
+    // same as String.getBytes(ISO_8859_1), characters outside the charset become '?'
+    private static int writeLatin1(final String s, final byte[] out, int position)
+    {
+        final int length = s.length();
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            out[position++] = (c <= 0xff) ? (byte) c : (byte) '?';
+        }
+        return position;
+    }
+
+    // same as String.getBytes(UTF_8), unpaired surrogates become '?'
+    private static int utf8Length(final String s)
+    {
+        final int length = s.length();
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            }
+            else if (c < 0x800) {
+                bytes += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c)) {
+                bytes += 1;
+            }
+            else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private static int writeUtf8(final String s, final byte[] out, int position)
+    {
+        final int length = s.length();
+        for (int i = 0; i < length; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                out[position++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                out[position++] = (byte) (0xc0 | (c >> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int cp = Character.toCodePoint(c, s.charAt(++i));
+                out[position++] = (byte) (0xf0 | (cp >> 18));
+                out[position++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                out[position++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                out[position++] = (byte) (0x80 | (cp & 0x3f));
+            }
+            else if (Character.isSurrogate(c)) {
+                out[position++] = '?';
+            }
+            else {
+                out[position++] = (byte) (0xe0 | (c >> 12));
+                out[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                out[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return position;
+    }
+
+    /*
+    decoded query parameters in request order, repeats included. empty if the URL has no query string. parsed on
+    first use.
+     */
+    public ParameterList getQueryParams()
+    {
+        if (queryParams == null) {
+            queryParams = ParameterList.parse(query);
+        }
+        return queryParams;
+    }
+}
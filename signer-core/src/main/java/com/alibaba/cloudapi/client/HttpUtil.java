@@ -0,0 +1,260 @@
+
+package com.alibaba.cloudapi.client;
+
+
+import com.alibaba.cloudapi.client.constant.Constants;
+import com.alibaba.cloudapi.client.constant.HttpHeader;
+import com.alibaba.cloudapi.client.constant.HttpMethod;
+import com.alibaba.cloudapi.client.constant.ContentType;
+import com.alibaba.cloudapi.client.constant.SystemHeader;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+
+
+public class HttpUtil {
+
+    // MessageDigest instances are not thread safe and getInstance() is a provider lookup
+    private static final ThreadLocal<MessageDigest> md5Digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("unknown algorithm MD5");
+        }
+    });
+
+    private static volatile HttpDateProvider dateProvider = HttpDateProvider.system();
+    private static volatile NonceGenerator nonceGenerator = new SecureNonceGenerator();
+    private static volatile ContentMd5Cache contentMd5Cache = null; // opt in: the cache copies every large body
+
+    /*
+    replace the clock used for Date and x-ca-timestamp headers
+     */
+    public static void setDateProvider(final HttpDateProvider provider)
+    {
+        dateProvider = provider;
+    }
+
+    public static HttpDateProvider getDateProvider()
+    {
+        return dateProvider;
+    }
+
+    /*
+    replace the source of x-ca-nonce values
+     */
+    public static void setNonceGenerator(final NonceGenerator generator)
+    {
+        nonceGenerator = generator;
+    }
+
+    public static NonceGenerator getNonceGenerator()
+    {
+        return nonceGenerator;
+    }
+
+    /*
+    replace the cache of body digests used for Content-MD5. null, the default, hashes every body.
+     */
+    public static void setContentMd5Cache(final ContentMd5Cache cache)
+    {
+        contentMd5Cache = cache;
+    }
+
+    public static ContentMd5Cache getContentMd5Cache()
+    {
+        return contentMd5Cache;
+    }
+
+    public static List<String> httpGet(String appKey, String appSecret, String[] signHeaders, String host, String path , Map<String , String> queryParams , Map<String , String> headerParams)
+    {
+        return signRequest(appKey, appSecret, signHeaders, HttpMethod.CLOUDAPI_GET, host, path, queryParams, HttpBody.empty(), headerParams, false).toHeaderLines();
+    }
+    public static List<String> httpPostForm(String appKey, String appSecret, String[] signHeaders, String host, String path , Map<String , String> queryParams , Map<String , String> formParams , Map<String , String> headerParams)
+    {
+        return signRequest(appKey, appSecret, signHeaders, HttpMethod.CLOUDAPI_POST, host, path, queryParams, HttpBody.form(ContentType.CLOUDAPI_CONTENT_TYPE_FORM, formParams), headerParams, false).toHeaderLines();
+    }
+
+    public  static List<String> httpPostBytes(String appKey, String appSecret, String[] signHeaders, String host, String path , Map<String , String> queryParams , byte[] body , Map<String , String> headerParams )
+    {
+        return httpPostBytes(appKey, appSecret, signHeaders, host, path, queryParams, wrapBody(body), headerParams);
+    }
+
+    public  static List<String> httpPostBytes(String appKey, String appSecret, String[] signHeaders, String host, String path , Map<String , String> queryParams , ByteBuffer body , Map<String , String> headerParams )
+    {
+        return signRequest(appKey, appSecret, signHeaders, HttpMethod.CLOUDAPI_POST, host, path, queryParams, HttpBody.bytes(ContentType.CLOUDAPI_CONTENT_TYPE_STREAM, body), headerParams, false).toHeaderLines();
+    }
+
+    public static List<String> httpPutBytes(String appKey, String appSecret, String[] signHeaders, String host, String path , Map<String , String> queryParams , byte[] body , Map<String , String> headerParams)
+    {
+        return httpPutBytes(appKey, appSecret, signHeaders, host, path, queryParams, wrapBody(body), headerParams);
+    }
+
+    /*
+    body is read from its current position to its limit. the buffer itself is not modified.
+     */
+    public static List<String> httpPutBytes(String appKey, String appSecret, String[] signHeaders, String host, String path , Map<String , String> queryParams , ByteBuffer body , Map<String , String> headerParams)
+    {
+        return signRequest(appKey, appSecret, signHeaders, HttpMethod.CLOUDAPI_PUT, host, path, queryParams, HttpBody.bytes(ContentType.CLOUDAPI_CONTENT_TYPE_STREAM, body), headerParams, false).toHeaderLines();
+    }
+
+    /*
+    Sign a request whose headers are given as a map, in the map's iteration order. headerParams is not modified.
+     */
+    public static SignResult signRequest(String appKey, String appSecret, String[] signHeaders, String method, String host, String path, Map<String, String> queryParams, HttpBody body, Map<String, String> headerParams, boolean preserveHeaderOrder)
+    {
+        final HeaderList headers = (headerParams == null) ? new HeaderList() : HeaderList.fromMap(headerParams);
+        return signRequest(appKey, appSecret, signHeaders, method, host, path, queryParams, body, headers, preserveHeaderOrder);
+    }
+
+    /*
+    Sign a request and return every header to send. The generated headers (the x-ca-* headers listed in signHeaders,
+    Date, Content-MD5 and the signature) are set in place in headers, which is modified; all other headers,
+    including repeated ones, are left where they are. If preserveHeaderOrder is false, headers are then sorted by
+    name.
+     */
+    public static SignResult signRequest(String appKey, String appSecret, String[] signHeaders, String method, String host, String path, Map<String, String> queryParams, HttpBody body, HeaderList headers, boolean preserveHeaderOrder)
+    {
+        return signRequest(appKey, appSecret, SigningPlan.of(signHeaders), method, host, path, ParameterList.fromMap(queryParams), body, headers, preserveHeaderOrder);
+    }
+
+    /*
+    same as above, with the signed header names compiled into a plan, eg SigningPlan.forSignatureHeaders()
+     */
+    public static SignResult signRequest(String appKey, String appSecret, SigningPlan plan, String method, String host, String path, ParameterList queryParams, HttpBody body, HeaderList headers, boolean preserveHeaderOrder)
+    {
+        return buildHttpRequest(appKey, appSecret, plan, method, path, queryParams, body, headers, preserveHeaderOrder);
+    }
+
+    private static SignResult buildHttpRequest(String appKey, String appSecret, SigningPlan plan, String method, String path, ParameterList queryParams, HttpBody body, HeaderList headerParams, boolean preserveHeaderOrder){
+
+        if(null == headerParams){
+            headerParams = new HeaderList();
+        }
+
+        final HttpDateProvider.Timestamp current = dateProvider.now();
+        for (int i = 0; i < plan.getGeneratedCount(); i++) {
+            final String header = plan.getGeneratedName(i);
+            switch (plan.getGeneratedKind(i)) {
+                case SigningPlan.GENERATED_DATE:
+                    headerParams.set(header, current.getHttpDate());
+                    break;
+                case SigningPlan.GENERATED_TIMESTAMP:
+                    headerParams.set(header, String.valueOf(current.getEpochMillis()));
+                    break;
+                case SigningPlan.GENERATED_APP_KEY:
+                    headerParams.set(header, appKey);
+                    break;
+                case SigningPlan.GENERATED_NONCE:
+                    headerParams.set(header, nonceGenerator.nextNonce());
+                    break;
+                case SigningPlan.GENERATED_SIGNATURE_METHOD:
+                    headerParams.set(header, Constants.CLOUDAPI_HMAC);
+                    break;
+            }
+        }
+
+        /**
+         * form parameters are signed directly. other bodies are covered by Content-MD5.
+         */
+        if(!body.hasFormParams() && body.hasBytes()){
+            final ContentMd5Cache cache = contentMd5Cache;
+            headerParams.set(HttpHeader.CLOUDAPI_HTTP_HEADER_CONTENT_MD5 , (cache == null) ? HttpUtil.base64AndMD5(body.getBytes()) : cache.get(body.getBytes()));
+        }
+
+        /**
+         * signed through a map view of the headers, where a repeated header's last value wins
+         */
+        final Map<String, String> signingView = headerParams.toMap();
+        final String signature = SignUtil.sign(appSecret, plan, method , signingView , path , (queryParams == null) ? ParameterList.empty() : queryParams , body.getFormParams());
+        final String signedHeaderNames = signingView.get(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS);
+        headerParams.set(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS, signedHeaderNames);
+        headerParams.set(SystemHeader.CLOUDAPI_X_CA_SIGNATURE, signature);
+
+        // values are kept as they are. HttpRequestContext.buildMessage() encodes them as UTF-8, the same bytes
+        // that were signed.
+        if (!preserveHeaderOrder) {
+            headerParams.sortByName();
+        }
+
+        final List<String> signedHeaderList = (signedHeaderNames == null || signedHeaderNames.isEmpty())
+                ? Collections.emptyList() : Arrays.asList(signedHeaderNames.split(","));
+        return new SignResult(headerParams, signature, signedHeaderList);
+    }
+
+    public static String buildParamString(Map<String , String> params){
+        StringBuilder result = new StringBuilder();
+        if(null != params && params.size() > 0){
+            boolean isFirst = true;
+            for(String key : params.keySet()){
+                if(isFirst){
+                    isFirst = false;
+                }
+                else{
+                    result.append("&");
+                }
+
+                try {
+                    result.append(key).append("=").append(URLEncoder.encode(params.get(key), Constants.CLOUDAPI_ENCODING.displayName()));
+                }
+                catch (UnsupportedEncodingException ex){
+                    throw new RuntimeException(ex);
+                }
+
+            }
+        }
+
+        return result.toString();
+    }
+
+    public static String combinePathParam(String path , Map<String , String> pathParams){
+        if(pathParams == null){
+            return path;
+        }
+
+        for(String key : pathParams.keySet()){
+            path = path.replace("["+key+"]" , pathParams.get(key));
+        }
+        return path;
+    }
+
+
+
+    public static String getHttpDateHeaderValue(Date date) {
+        return dateProvider.httpDate(date.getTime());
+    }
+
+    private static ByteBuffer wrapBody(byte[] body) {
+        return (body == null) ? null : ByteBuffer.wrap(body);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public static String base64AndMD5(byte[] bytes) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("bytes can not be null");
+        }
+        return base64AndMD5(ByteBuffer.wrap(bytes));
+    }
+
+    /*
+    digest the remaining bytes of body without copying them. body's position is not changed.
+     */
+    public static String base64AndMD5(ByteBuffer body) {
+        if (body == null) {
+            throw new IllegalArgumentException("bytes can not be null");
+        }
+        final MessageDigest md = md5Digest.get();
+        md.reset();
+        md.update(body.duplicate());
+        return Base64.getEncoder().encodeToString(md.digest());
+    }
+
+}
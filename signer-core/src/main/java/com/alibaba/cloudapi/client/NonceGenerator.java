@@ -0,0 +1,47 @@
+package com.alibaba.cloudapi.client;
+
+/*
+Source of x-ca-nonce values. Implementations must be safe to call from many signing threads at once.
+ */
+public interface NonceGenerator
+{
+    String MODE_SECURE = "secure";
+    String MODE_SEQUENTIAL = "sequential";
+
+    String nextNonce();
+
+    /*
+    generator for a mode: MODE_SECURE, or MODE_SEQUENTIAL starting from seed. a replayWindow above 0 adds a check
+    that no nonce repeats within that many recent ones.
+     */
+    static NonceGenerator create(final String mode, final long seed, final int replayWindow)
+    {
+        final NonceGenerator generator;
+        if (MODE_SECURE.equals(mode)) {
+            generator = new SecureNonceGenerator();
+        }
+        else if (MODE_SEQUENTIAL.equals(mode)) {
+            generator = new SequentialNonceGenerator(seed);
+        }
+        else {
+            throw new IllegalArgumentException("unknown nonce mode: " + mode);
+        }
+        return (replayWindow > 0) ? new ReplayCheckingNonceGenerator(generator, replayWindow) : generator;
+    }
+
+    /*
+    same as above for a command line value: "secure", "sequential" or "sequential:seed"
+     */
+    static NonceGenerator parse(final String spec, final int replayWindow)
+    {
+        final int colon = spec.indexOf(':');
+        if (colon < 0) {
+            return create(spec, 0, replayWindow);
+        }
+        final String mode = spec.substring(0, colon);
+        if (!MODE_SEQUENTIAL.equals(mode)) {
+            throw new IllegalArgumentException("only sequential nonces take a seed: " + spec);
+        }
+        return create(mode, Long.parseLong(spec.substring(colon + 1)), replayWindow);
+    }
+}
@@ -0,0 +1,209 @@
+package com.alibaba.cloudapi.client;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Decoded query or form parameters in request order. Repeated names are kept.
+
+Parsing is a single pass that never fails: a pair without '=' has an empty value, empty pairs are skipped and a '%'
+that does not start a valid escape is kept as it is. Escapes and raw non-ASCII bytes are decoded as UTF-8 and '+' is
+a space. Pairs that need no decoding are plain substrings of the input.
+ */
+public final class ParameterList
+{
+    private static final ParameterList EMPTY = new ParameterList(0);
+
+    private final List<String> names;
+    private final List<String> values;
+
+    public ParameterList()
+    {
+        this(8);
+    }
+
+    private ParameterList(final int expectedSize)
+    {
+        this.names = new ArrayList<>(expectedSize);
+        this.values = new ArrayList<>(expectedSize);
+    }
+
+    /*
+    empty and unmodifiable
+     */
+    public static ParameterList empty()
+    {
+        return EMPTY;
+    }
+
+    /*
+    Parse an encoded query string, without the leading '?', or an application/x-www-form-urlencoded body. Each char
+    of encoded stands for one byte, as when the raw bytes are decoded as ISO-8859-1. Returns an empty list for null.
+     */
+    public static ParameterList parse(final String encoded)
+    {
+        if (encoded == null || encoded.isEmpty()) {
+            return EMPTY;
+        }
+        ParameterList params = new ParameterList();
+        final int length = encoded.length();
+        int pairStart = 0;
+        while (pairStart <= length) {
+            int pairEnd = encoded.indexOf('&', pairStart);
+            if (pairEnd < 0) {
+                pairEnd = length;
+            }
+            if (pairEnd > pairStart) {
+                int separator = encoded.indexOf('=', pairStart);
+                if (separator < 0 || separator > pairEnd) {
+                    separator = pairEnd;
+                }
+                final String name = decode(encoded, pairStart, separator);
+                final String value = (separator < pairEnd) ? decode(encoded, separator + 1, pairEnd) : "";
+                params.names.add(name);
+                params.values.add(value);
+            }
+            pairStart = pairEnd + 1;
+        }
+        return params;
+    }
+
+    /*
+    parse an application/x-www-form-urlencoded body. the buffer is not modified.
+     */
+    public static ParameterList parse(final ByteBuffer body)
+    {
+        if (body == null || !body.hasRemaining()) {
+            return EMPTY;
+        }
+        return parse(StandardCharsets.ISO_8859_1.decode(body.duplicate()).toString());
+    }
+
+    /*
+    parameters in the map's iteration order. null values become empty values.
+     */
+    public static ParameterList fromMap(final Map<String, String> map)
+    {
+        if (map == null || map.isEmpty()) {
+            return EMPTY;
+        }
+        ParameterList params = new ParameterList(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            params.add(entry.getKey(), entry.getValue());
+        }
+        return params;
+    }
+
+    public void add(final String name, final String value)
+    {
+        if (this == EMPTY) {
+            throw new UnsupportedOperationException("empty parameter list is unmodifiable");
+        }
+        names.add(name);
+        values.add((value == null) ? "" : value);
+    }
+
+    public int size() { return names.size(); }
+    public boolean isEmpty() { return names.isEmpty(); }
+    public String getName(final int index) { return names.get(index); }
+    public String getValue(final int index) { return values.get(index); }
+
+    /*
+    value of the first parameter with the given name, or null
+     */
+    public String getFirst(final String name)
+    {
+        final int index = names.indexOf(name);
+        return (index < 0) ? null : values.get(index);
+    }
+
+    public List<String> getAll(final String name)
+    {
+        List<String> result = new ArrayList<>(1);
+        for (int i = 0; i < names.size(); i++) {
+            if (names.get(i).equals(name)) {
+                result.add(values.get(i));
+            }
+        }
+        return result;
+    }
+
+    /*
+    map of name to value in request order. if a name is repeated, the first value wins, as in the string-to-sign.
+     */
+    public Map<String, String> toMap()
+    {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            map.putIfAbsent(names.get(i), values.get(i));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            sb.append(names.get(i)).append('=').append(values.get(i));
+        }
+        return sb.toString();
+    }
+
+    private static String decode(final String s, final int start, final int end)
+    {
+        boolean plain = true;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c == '%' || c == '+' || c >= 0x80) {
+                plain = false;
+                break;
+            }
+        }
+        if (plain) {
+            return s.substring(start, end);
+        }
+
+        byte[] bytes = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c == '+') {
+                bytes[length++] = ' ';
+            }
+            else if (c == '%' && hexValue(s, i + 1, end) >= 0 && hexValue(s, i + 2, end) >= 0) {
+                bytes[length++] = (byte) ((hexValue(s, i + 1, end) << 4) | hexValue(s, i + 2, end));
+                i += 2;
+            }
+            else {
+                bytes[length++] = (byte) c;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int hexValue(final String s, final int index, final int end)
+    {
+        if (index >= end) {
+            return -1;
+        }
+        final char c = s.charAt(index);
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
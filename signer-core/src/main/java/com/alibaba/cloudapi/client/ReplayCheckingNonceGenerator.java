@@ -0,0 +1,50 @@
+package com.alibaba.cloudapi.client;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+Wraps another generator and guarantees that no nonce repeats within a sliding window of the most recently issued
+nonces, the same check the gateway applies. Costs a lock per nonce, so only use it when the underlying generator
+is not trusted to be unique.
+ */
+public class ReplayCheckingNonceGenerator implements NonceGenerator
+{
+    private static final int MAX_ATTEMPTS = 16;
+
+    private final NonceGenerator delegate;
+    private final String[] window;
+    private final Set<String> issued;
+    private int next = 0;
+
+    public ReplayCheckingNonceGenerator(final NonceGenerator delegate, final int windowSize)
+    {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be positive");
+        }
+        this.delegate = delegate;
+        this.window = new String[windowSize];
+        this.issued = new HashSet<>(windowSize * 2);
+    }
+
+    @Override
+    public String nextNonce()
+    {
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            final String nonce = delegate.nextNonce();
+            synchronized (this) {
+                if (issued.add(nonce)) {
+                    // evict the oldest nonce once the window is full
+                    final String evicted = window[next];
+                    if (evicted != null) {
+                        issued.remove(evicted);
+                    }
+                    window[next] = nonce;
+                    next = (next + 1) % window.length;
+                    return nonce;
+                }
+            }
+        }
+        throw new IllegalStateException("Nonce generator keeps repeating values");
+    }
+}
@@ -0,0 +1,81 @@
+package com.alibaba.cloudapi.client;
+
+import com.alibaba.cloudapi.client.constant.SystemHeader;
+
+import java.nio.ByteBuffer;
+
+/*
+Signs raw HTTP request messages with one app key and secret, outside of any UI. The headers to sign come from the
+request's own x-ca-signature-headers value; requests without one are not API Gateway requests and are returned as
+they are. Signers are immutable and can be shared between threads.
+ */
+public final class RequestSigner
+{
+    private final String appKey;
+    private final String appSecret;
+    private final boolean preserveHeaderOrder;
+
+    /*
+    preserveHeaderOrder keeps every header where it was, as described in HttpUtil.signRequest(). when false the
+    headers are sorted by name, as the original client did.
+     */
+    public RequestSigner(final String appKey, final String appSecret, final boolean preserveHeaderOrder)
+    {
+        if (appKey == null || appSecret == null) {
+            throw new IllegalArgumentException("appKey and appSecret can not be null");
+        }
+        this.appKey = appKey;
+        this.appSecret = appSecret;
+        this.preserveHeaderOrder = preserveHeaderOrder;
+    }
+
+    public String getAppKey() { return appKey; }
+    public boolean isPreserveHeaderOrder() { return preserveHeaderOrder; }
+
+    /*
+    true if the request lists the headers it wants signed in x-ca-signature-headers
+     */
+    public static boolean isSignable(final HttpRequestContext request)
+    {
+        return request.getHeaders().get(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS) != null;
+    }
+
+    /*
+    Sign a parsed request. headers, usually a copy of request.getHeaders(), is updated in place. Throws
+    IllegalArgumentException if the request is not signable.
+     */
+    public SignResult sign(final HttpRequestContext request, final HeaderList headers)
+    {
+        final String signatureHeaders = headers.get(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS);
+        if (signatureHeaders == null) {
+            throw new IllegalArgumentException("request has no " + SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS + " header");
+        }
+        return SigningDispatcher.sign(appKey, appSecret, SigningPlan.forSignatureHeaders(signatureHeaders), request,
+                headers, preserveHeaderOrder);
+    }
+
+    /*
+    the signed message, or the original bytes if the request is not signable
+     */
+    public byte[] sign(final HttpRequestContext request)
+    {
+        if (!isSignable(request)) {
+            return request.getRequest();
+        }
+        return request.buildMessage(sign(request, new HeaderList(request.getHeaders())).getHeaders());
+    }
+
+    /*
+    parse and sign a raw message. protocol, host and port identify the service it is sent to, as in
+    HttpRequestContext.parse().
+     */
+    public byte[] sign(final byte[] message, final String protocol, final String host, final int port)
+    {
+        return sign(HttpRequestContext.parse(message, protocol, host, port));
+    }
+
+    public byte[] sign(final ByteBuffer message, final String protocol, final String host, final int port)
+    {
+        return sign(HttpRequestContext.parse(message, protocol, host, port));
+    }
+}
@@ -0,0 +1,47 @@
+package com.alibaba.cloudapi.client;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/*
+Random (version 4) UUID nonces, like UUID.randomUUID(), but each thread draws from its own SecureRandom instead of
+the single shared instance behind UUID.randomUUID(), so parallel signing threads do not contend for one lock.
+ */
+public class SecureNonceGenerator implements NonceGenerator
+{
+    private static final class State
+    {
+        final SecureRandom random = newSecureRandom();
+        final byte[] bytes = new byte[16];
+    }
+
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    private static SecureRandom newSecureRandom()
+    {
+        try {
+            // DRBG instances are independently seeded and do not share a lock like NativePRNG does
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException exc) {
+            return new SecureRandom();
+        }
+    }
+
+    @Override
+    public String nextNonce()
+    {
+        final State s = state.get();
+        final byte[] bytes = s.bytes;
+        s.random.nextBytes(bytes);
+        bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x40); // version 4
+        bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80); // IETF variant
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xff);
+            lsb = (lsb << 8) | (bytes[i + 8] & 0xff);
+        }
+        return new UUID(msb, lsb).toString();
+    }
+}
@@ -0,0 +1,26 @@
+package com.alibaba.cloudapi.client;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Reproducible UUID-formatted nonces for testing: a random prefix derived from the seed followed by a counter. The
+same seed always yields the same sequence. Not suitable against a real gateway where nonces must be unpredictable.
+ */
+public class SequentialNonceGenerator implements NonceGenerator
+{
+    private final long prefix;
+    private final AtomicLong counter = new AtomicLong();
+
+    public SequentialNonceGenerator(final long seed)
+    {
+        this.prefix = new Random(seed).nextLong();
+    }
+
+    @Override
+    public String nextNonce()
+    {
+        return new UUID(prefix, counter.getAndIncrement()).toString();
+    }
+}
@@ -0,0 +1,48 @@
+package com.alibaba.cloudapi.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+Output of signing a request: every header to send, in order, including the generated x-ca-* headers and the
+signature. Render it with HttpRequestContext.buildMessage() or toHeaderLines().
+ */
+public class SignResult
+{
+    private final HeaderList headers;
+    private final String signature;
+    private final List<String> signedHeaderNames;
+
+    public SignResult(HeaderList headers, String signature, List<String> signedHeaderNames)
+    {
+        this.headers = headers;
+        this.signature = signature;
+        this.signedHeaderNames = signedHeaderNames;
+    }
+
+    public HeaderList getHeaders() { return headers; }
+    public String getSignature() { return signature; }
+
+    /*
+    names of the headers covered by the signature, as sent in x-ca-signature-headers
+     */
+    public List<String> getSignedHeaderNames() { return signedHeaderNames; }
+
+    /*
+    headers formatted as "name: value" lines
+     */
+    public List<String> toHeaderLines()
+    {
+        List<String> lines = new ArrayList<>(headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            lines.add(headers.getName(i) + ": " + headers.getValue(i));
+        }
+        return lines;
+    }
+
+    @Override
+    public String toString()
+    {
+        return headers.toString();
+    }
+}
@@ -0,0 +1,11 @@
+package com.alibaba.cloudapi.client;
+
+/*
+Receives the intermediate values of every signature computed by SignUtil. Register with
+SignUtil.setTraceListener(). When no listener is registered the string-to-sign is never materialized, so tracing
+costs nothing on the signing path. Implementations are called on the signing thread and should return quickly.
+ */
+public interface SignTraceListener
+{
+    void signed(String stringToSign, String signedHeaders, String signature, long elapsedNanos);
+}
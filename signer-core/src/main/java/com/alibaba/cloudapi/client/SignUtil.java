@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.alibaba.cloudapi.client;
+
+
+import com.alibaba.cloudapi.client.constant.Constants;
+import com.alibaba.cloudapi.client.constant.HttpHeader;
+import com.alibaba.cloudapi.client.constant.SystemHeader;
+import javax.crypto.spec.SecretKeySpec;
+
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by fred on 16/9/7.
+ */
+public class SignUtil {
+    private static volatile SignTraceListener traceListener = null;
+
+    /*
+    set to null to disable tracing
+     */
+    public static void setTraceListener(final SignTraceListener listener)
+    {
+        traceListener = listener;
+    }
+
+    public static SignTraceListener getTraceListener()
+    {
+        return traceListener;
+    }
+
+    /*
+    Initialized Mac instances, per thread, keyed by algorithm and then by appSecret. Mac.getInstance() and init()
+    do a provider lookup and key schedule, so they are only paid once per thread and secret. Bumping
+    macPoolGeneration makes every thread drop its instances the next time it signs.
+     */
+    private static final class MacPool {
+        private long generation;
+        private final Map<String, Map<String, Mac>> macs = new HashMap<>();
+    }
+    private static final ThreadLocal<MacPool> macPool = ThreadLocal.withInitial(MacPool::new);
+    private static final AtomicLong macPoolGeneration = new AtomicLong();
+
+    /*
+    call this when a profile secret is changed or removed
+     */
+    public static void invalidateMacCache()
+    {
+        macPoolGeneration.incrementAndGet();
+    }
+
+    static Mac getMac(final String appSecret, final String algorithm) throws GeneralSecurityException
+    {
+        final MacPool pool = macPool.get();
+        final long generation = macPoolGeneration.get();
+        if (pool.generation != generation) {
+            pool.macs.clear();
+            pool.generation = generation;
+        }
+
+        Map<String, Mac> secretMap = pool.macs.get(algorithm);
+        if (secretMap == null) {
+            secretMap = new HashMap<>();
+            pool.macs.put(algorithm, secretMap);
+        }
+
+        Mac mac = secretMap.get(appSecret);
+        if (mac == null) {
+            mac = Mac.getInstance(algorithm);
+            byte[] keyBytes = appSecret.getBytes(Constants.CLOUDAPI_ENCODING);
+            mac.init(new SecretKeySpec(keyBytes, 0, keyBytes.length, algorithm));
+            secretMap.put(appSecret, mac);
+        }
+        else {
+            // discard any state left over from a signature that failed part way through
+            mac.reset();
+        }
+        return mac;
+    }
+
+    /**
+     */
+    public static String sign(String appSecret, String[] signHeaders, String method , Map<String, String> headersParams , String pathWithParameter , Map<String, String> queryParams , Map<String, String> formParam) {
+        return sign(appSecret, SigningPlan.of(signHeaders), method, headersParams, pathWithParameter, queryParams, formParam);
+    }
+
+    /*
+    sign with a plan compiled from the signed header names. headers are matched to the plan ignoring case and are
+    signed under the name listed in the plan.
+     */
+    public static String sign(String appSecret, SigningPlan plan, String method , Map<String, String> headersParams , String pathWithParameter , Map<String, String> queryParams , Map<String, String> formParam) {
+        return sign(appSecret, plan, method, headersParams, pathWithParameter, ParameterList.fromMap(queryParams), ParameterList.fromMap(formParam));
+    }
+
+    /*
+    sign with decoded query and form parameters. repeated parameters are kept; only the first value is signed.
+     */
+    public static String sign(String appSecret, SigningPlan plan, String method , Map<String, String> headersParams , String pathWithParameter , ParameterList queryParams , ParameterList formParam) {
+        // only keep a copy of the string-to-sign when someone will read it
+        final SignTraceListener listener = traceListener;
+        final long startNanos = (listener == null) ? 0 : System.nanoTime();
+        final StringToSignWriter writer;
+        final String signature;
+        try {
+            Mac hmacSha256 = getMac(appSecret, Constants.CLOUDAPI_HMAC);
+
+            writer = StringToSignWriter.get(hmacSha256, listener != null);
+            writeStringToSign(writer, plan, method , headersParams , pathWithParameter , queryParams , formParam);
+
+            //
+            byte[] signResult = writer.finish();
+            byte[] base64Bytes = Base64.getEncoder().encode(signResult);
+            signature = new String(base64Bytes , Constants.CLOUDAPI_ENCODING);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        if (listener != null) {
+            listener.signed(writer.capturedText(), headersParams.get(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS),
+                    signature, System.nanoTime() - startNanos);
+        }
+        return signature;
+    }
+
+    /**
+     */
+    private static void writeStringToSign(StringToSignWriter writer, SigningPlan plan, String method , Map<String, String> headerParams, String pathWithParameter, ParameterList queryParams ,  ParameterList formParams) {
+
+        writer.append(method).append(Constants.CLOUDAPI_LF);
+
+        //
+        writeHeaderValues(writer, headerParams, HttpHeader.CLOUDAPI_HTTP_HEADER_ACCEPT);
+        writer.append(Constants.CLOUDAPI_LF);
+
+        //
+        writeHeaderValues(writer, headerParams, HttpHeader.CLOUDAPI_HTTP_HEADER_CONTENT_MD5);
+        writer.append(Constants.CLOUDAPI_LF);
+
+        //
+        writeHeaderValues(writer, headerParams, HttpHeader.CLOUDAPI_HTTP_HEADER_CONTENT_TYPE);
+        writer.append(Constants.CLOUDAPI_LF);
+
+        //
+        writeHeaderValues(writer, headerParams, HttpHeader.CLOUDAPI_HTTP_HEADER_DATE);
+        writer.append(Constants.CLOUDAPI_LF);
+
+        //
+        writeHeaders(writer, plan, headerParams);
+
+        //
+        writeResource(writer, pathWithParameter, queryParams , formParams);
+    }
+
+    private static void writeHeaderValues(StringToSignWriter writer, Map<String, String> headerParams, String name) {
+        for (Map.Entry<String, String> header : headerParams.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                writer.append(header.getValue());
+            }
+        }
+    }
+
+    /**
+     * Canonical resource as the gateway computes it: parameter names sorted, a name repeated in the query or form
+     * signed once with its first value, form values taking precedence over query values, "name" alone when the value
+     * is empty and blank names left out.
+     */
+    private static void writeResource(StringToSignWriter writer, String pathWithParameter, ParameterList queryParams ,  ParameterList formParams) {
+        writer.append(pathWithParameter);
+
+        // indices of form parameters, then query parameters, stably sorted by name. the first index for each name
+        // is the value to sign.
+        final int formSize = formParams.size();
+        final int count = formSize + queryParams.size();
+        final int[] order = writer.indices(2 * count);
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        sortByName(order, count, queryParams, formParams);
+
+        boolean isFirst = true;
+        String previous = null;
+        for (int i = 0; i < count; i++) {
+            final int index = order[i];
+            final String key = parameterName(index, queryParams, formParams);
+            if (key.equals(previous) || isBlank(key)) {
+                continue;
+            }
+            previous = key;
+
+            if (isFirst) {
+                writer.append('?');
+                isFirst = false;
+            }
+            else {
+                writer.append('&');
+            }
+            writer.append(key);
+            final String value = (index < formSize) ? formParams.getValue(index) : queryParams.getValue(index - formSize);
+            if (!value.isEmpty()) {
+                writer.append('=').append(value);
+            }
+        }
+    }
+
+    private static String parameterName(int index, ParameterList queryParams, ParameterList formParams) {
+        final int formSize = formParams.size();
+        return (index < formSize) ? formParams.getName(index) : queryParams.getName(index - formSize);
+    }
+
+    private static boolean isBlank(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isWhitespace(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+    stable merge sort of order[0, count) by parameter name. order must have room for 2 * count entries; the upper
+    half is used as scratch space.
+     */
+    private static void sortByName(int[] order, int count, ParameterList queryParams, ParameterList formParams) {
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count - width; low += 2 * width) {
+                final int middle = low + width;
+                final int high = Math.min(low + 2 * width, count);
+                if (parameterName(order[middle - 1], queryParams, formParams).compareTo(parameterName(order[middle], queryParams, formParams)) <= 0) {
+                    continue; // already in order
+                }
+                System.arraycopy(order, low, order, count + low, high - low);
+                int left = count + low;
+                int right = count + middle;
+                int out = low;
+                while (left < count + middle && right < count + high) {
+                    if (parameterName(order[right], queryParams, formParams).compareTo(parameterName(order[left], queryParams, formParams)) < 0) {
+                        order[out++] = order[right++];
+                    }
+                    else {
+                        order[out++] = order[left++];
+                    }
+                }
+                while (left < count + middle) {
+                    order[out++] = order[left++];
+                }
+                while (right < count + high) {
+                    order[out++] = order[right++];
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     */
+    private static void writeHeaders(StringToSignWriter writer, SigningPlan plan, Map<String, String> headers) {
+        if (headers == null) {
+            return;
+        }
+
+        //
+        String[] names = writer.names(headers.size());
+        int count = 0;
+        StringBuilder signHeadersStringBuilder = new StringBuilder();
+        for (String key : headers.keySet()) {
+            final String signedName = plan.getSignedName(key);
+            if (signedName != null && !contains(names, count, signedName)) {
+                if (count != 0) {
+                    signHeadersStringBuilder.append(",");
+                }
+                signHeadersStringBuilder.append(signedName);
+                names[count++] = signedName;
+            }
+        }
+
+        writer.sortNames(count);
+        for (int i = 0; i < count; i++) {
+            writer.append(names[i]).append(':').append(headerValue(headers, names[i])).append(Constants.CLOUDAPI_LF);
+        }
+        writer.clearNames(count);
+
+        //
+        headers.put(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS, signHeadersStringBuilder.toString());
+    }
+
+    private static boolean contains(String[] names, int count, String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // value of a header signed under the name listed in the plan, which may differ in case from the request
+    private static String headerValue(Map<String, String> headers, String signedName) {
+        final String value = headers.get(signedName);
+        if (value != null || headers.containsKey(signedName)) {
+            return value;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (header.getKey().equalsIgnoreCase(signedName)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+}
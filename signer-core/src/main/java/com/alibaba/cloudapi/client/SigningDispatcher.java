@@ -0,0 +1,84 @@
+package com.alibaba.cloudapi.client;
+
+import com.alibaba.cloudapi.client.constant.HttpHeader;
+import com.alibaba.cloudapi.client.constant.HttpMethod;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Decides how a parsed request is signed, for any method and body. Methods in METHODS_WITHOUT_BODY never sign a body.
+For every other method, including ones not listed anywhere, the body style comes from the Content-Type table: form
+bodies are signed parameter by parameter and any other body is covered by Content-MD5.
+ */
+public final class SigningDispatcher
+{
+    public enum BodyStyle
+    {
+        NONE,  // no body is signed
+        FORM,  // form parameters are part of the string-to-sign
+        BYTES  // Content-MD5 of the body is signed
+    }
+
+    private static final Set<String> METHODS_WITHOUT_BODY = new HashSet<>();
+    // media type prefix, lowercase, to body style. first match wins.
+    private static final Map<String, BodyStyle> CONTENT_TYPES = new LinkedHashMap<>();
+    private static final BodyStyle DEFAULT_BODY_STYLE = BodyStyle.BYTES;
+
+    static {
+        METHODS_WITHOUT_BODY.add(HttpMethod.CLOUDAPI_GET);
+        METHODS_WITHOUT_BODY.add(HttpMethod.CLOUDAPI_HEAD);
+
+        CONTENT_TYPES.put("application/x-www-form-urlencoded", BodyStyle.FORM);
+    }
+
+    private SigningDispatcher() {}
+
+    public static BodyStyle getBodyStyle(final String method, final String contentType)
+    {
+        if (METHODS_WITHOUT_BODY.contains(method.toUpperCase(Locale.ROOT))) {
+            return BodyStyle.NONE;
+        }
+        if (contentType != null) {
+            final String mediaType = contentType.trim().toLowerCase(Locale.ROOT);
+            for (Map.Entry<String, BodyStyle> entry : CONTENT_TYPES.entrySet()) {
+                if (mediaType.startsWith(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return DEFAULT_BODY_STYLE;
+    }
+
+    /*
+    the signed body of a request. body is a view of the request body and is not modified.
+     */
+    public static HttpBody getBody(final String method, final String contentType, final ByteBuffer body)
+    {
+        switch (getBodyStyle(method, contentType)) {
+            case FORM:
+                return HttpBody.form(contentType, ParameterList.parse(body));
+            case BYTES:
+                return HttpBody.bytes(contentType, body);
+            default:
+                return HttpBody.empty();
+        }
+    }
+
+    /*
+    Sign a parsed request. headers, usually a copy of request.getHeaders(), is updated in place as described in
+    HttpUtil.signRequest().
+     */
+    public static SignResult sign(final String appKey, final String appSecret, final SigningPlan plan,
+                                  final HttpRequestContext request, final HeaderList headers, final boolean preserveHeaderOrder)
+    {
+        final HttpBody body = getBody(request.getMethod(), headers.get(HttpHeader.CLOUDAPI_HTTP_HEADER_CONTENT_TYPE),
+                request.getBodyView());
+        return HttpUtil.signRequest(appKey, appSecret, plan, request.getMethod(), request.getHost(), request.getPath(),
+                request.getQueryParams(), body, headers, preserveHeaderOrder);
+    }
+}
@@ -0,0 +1,193 @@
+package com.alibaba.cloudapi.client;
+
+import com.alibaba.cloudapi.client.constant.HttpHeader;
+import com.alibaba.cloudapi.client.constant.SystemHeader;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+Everything derived from a list of signed header names, computed once: a lookup of the signed names that ignores case
+and which of them get a generated value (Date, x-ca-timestamp, x-ca-key, x-ca-nonce, x-ca-signature-method). Names
+are trimmed and empty names dropped, as the gateway does. Accept, Content-MD5, Content-Type and Date have their own
+lines in the string-to-sign, so like the signature headers they are never signed again as listed headers, though a
+listed Date still gets a generated value. Plans are immutable. Requests whose x-ca-signature-headers
+lists the same names share one plan from a small LRU cache.
+ */
+public final class SigningPlan
+{
+    public static final int GENERATED_NONE = 0;
+    public static final int GENERATED_DATE = 1;
+    public static final int GENERATED_TIMESTAMP = 2;
+    public static final int GENERATED_APP_KEY = 3;
+    public static final int GENERATED_NONCE = 4;
+    public static final int GENERATED_SIGNATURE_METHOD = 5;
+
+    private static final int CACHE_SIZE = 64;
+
+    // left out of the listed headers by the gateway even when x-ca-signature-headers names them
+    private static final TreeSet<String> UNSIGNED_NAMES = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    static {
+        UNSIGNED_NAMES.add(SystemHeader.CLOUDAPI_X_CA_SIGNATURE);
+        UNSIGNED_NAMES.add(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS);
+        UNSIGNED_NAMES.add(HttpHeader.CLOUDAPI_HTTP_HEADER_ACCEPT);
+        UNSIGNED_NAMES.add(HttpHeader.CLOUDAPI_HTTP_HEADER_CONTENT_MD5);
+        UNSIGNED_NAMES.add(HttpHeader.CLOUDAPI_HTTP_HEADER_CONTENT_TYPE);
+        UNSIGNED_NAMES.add(HttpHeader.CLOUDAPI_HTTP_HEADER_DATE);
+    }
+
+    // access ordered for LRU eviction. guarded by itself.
+    private static final LinkedHashMap<String, SigningPlan> cache = new LinkedHashMap<String, SigningPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SigningPlan> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final String[] signHeaders;
+    // name, ignoring case, to the name as listed. only the names that go in the listed headers block.
+    private final TreeMap<String, String> signedNames = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final String[] generatedNames;
+    private final int[] generatedKinds;
+
+    private SigningPlan(final String[] signHeaders)
+    {
+        String[] listed = new String[signHeaders.length];
+        String[] names = new String[signHeaders.length];
+        int[] kinds = new int[signHeaders.length];
+        int listedCount = 0;
+        int count = 0;
+        for (String header : signHeaders) {
+            header = header.trim();
+            if (header.isEmpty()) {
+                continue;
+            }
+            listed[listedCount++] = header;
+            if (!UNSIGNED_NAMES.contains(header)) {
+                signedNames.putIfAbsent(header, header);
+            }
+            final int kind = generatedKind(header.toLowerCase());
+            if (kind != GENERATED_NONE) {
+                names[count] = header;
+                kinds[count] = kind;
+                count++;
+            }
+        }
+        this.signHeaders = Arrays.copyOf(listed, listedCount);
+        this.generatedNames = Arrays.copyOf(names, count);
+        this.generatedKinds = Arrays.copyOf(kinds, count);
+    }
+
+    /*
+    Same matching rules as before plans existed: a name that contains one of the system header names gets its value,
+    and if it contains several the last one below wins. HttpHeader.CLOUDAPI_HTTP_HEADER_HOST is "Host", which a
+    lowercase name never contains, so Host is always sent as it is.
+     */
+    private static int generatedKind(final String lowerCase)
+    {
+        int kind = GENERATED_NONE;
+        if (lowerCase.contains(HttpHeader.CLOUDAPI_HTTP_HEADER_DATE)) {
+            kind = GENERATED_DATE;
+        }
+        if (lowerCase.contains(SystemHeader.CLOUDAPI_X_CA_TIMESTAMP)) {
+            kind = GENERATED_TIMESTAMP;
+        }
+        if (lowerCase.contains(SystemHeader.CLOUDAPI_X_CA_KEY)) {
+            kind = GENERATED_APP_KEY;
+        }
+        if (lowerCase.contains(SystemHeader.CLOUDAPI_X_CA_NONCE)) {
+            kind = GENERATED_NONCE;
+        }
+        if (lowerCase.contains(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_METHOD)) {
+            kind = GENERATED_SIGNATURE_METHOD;
+        }
+        return kind;
+    }
+
+    /*
+    plan for the given header names. not cached.
+     */
+    public static SigningPlan of(final String[] signHeaders)
+    {
+        return new SigningPlan(signHeaders);
+    }
+
+    /*
+    plan for a comma separated x-ca-signature-headers value, from the cache when possible
+     */
+    public static SigningPlan forSignatureHeaders(final String signatureHeaders)
+    {
+        final String key = normalize(signatureHeaders);
+        synchronized (cache) {
+            final SigningPlan plan = cache.get(key);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        final SigningPlan plan = new SigningPlan(key.split(","));
+        synchronized (cache) {
+            cache.put(key, plan);
+        }
+        return plan;
+    }
+
+    /*
+    the list with whitespace around names and empty names removed. returns signatureHeaders itself when there is
+    nothing to remove, which is the usual case.
+     */
+    static String normalize(final String signatureHeaders)
+    {
+        boolean normal = !signatureHeaders.isEmpty();
+        char previous = ',';
+        for (int i = 0; i < signatureHeaders.length() && normal; i++) {
+            final char c = signatureHeaders.charAt(i);
+            normal = !Character.isWhitespace(c) && !(c == ',' && previous == ',');
+            previous = c;
+        }
+        if (normal && previous != ',') {
+            return signatureHeaders;
+        }
+
+        StringBuilder sb = new StringBuilder(signatureHeaders.length());
+        for (String name : signatureHeaders.split(",")) {
+            name = name.trim();
+            if (!name.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                sb.append(name);
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+    the header names as listed, trimmed
+     */
+    public String[] getSignHeaders() { return signHeaders.clone(); }
+
+    /*
+    the name as listed in the plan if name is signed, ignoring case, otherwise null
+     */
+    public String getSignedName(final String name)
+    {
+        return signedNames.get(name);
+    }
+
+    public boolean isSigned(final String name)
+    {
+        return getSignedName(name) != null;
+    }
+
+    /*
+    number of headers with a generated value. getGeneratedName(i) and getGeneratedKind(i) describe each one in the
+    order they were listed.
+     */
+    public int getGeneratedCount() { return generatedNames.length; }
+    public String getGeneratedName(final int index) { return generatedNames[index]; }
+    public int getGeneratedKind(final int index) { return generatedKinds[index]; }
+}
@@ -0,0 +1,160 @@
+package com.alibaba.cloudapi.client;
+
+import javax.crypto.Mac;
+import java.util.Arrays;
+
+/*
+Writes the string-to-sign straight into a Mac as UTF-8, staging bytes in a reusable per-thread buffer. This avoids
+building the canonical string and then re-encoding it before doFinal(). Instances are not thread safe; use get()
+to borrow the calling thread's writer.
+ */
+final class StringToSignWriter
+{
+    private static final int BUFFER_SIZE = 1024;
+
+    private static final ThreadLocal<StringToSignWriter> writers = ThreadLocal.withInitial(StringToSignWriter::new);
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private Mac mac;
+    // when non-null, a copy of everything written is kept here for debugging
+    private StringBuilder capture;
+
+    // scratch space for sorting header and parameter names
+    private String[] names = new String[32];
+    private int[] indices = new int[64];
+
+    private StringToSignWriter() {}
+
+    static StringToSignWriter get(final Mac mac, final boolean captureText)
+    {
+        StringToSignWriter writer = writers.get();
+        writer.mac = mac;
+        writer.position = 0;
+        if (captureText) {
+            writer.capture = new StringBuilder();
+        }
+        else {
+            writer.capture = null;
+        }
+        return writer;
+    }
+
+    /*
+    returns a scratch array with room for at least size names. contents are undefined.
+     */
+    String[] names(final int size)
+    {
+        if (names.length < size) {
+            names = new String[Integer.max(size, names.length * 2)];
+        }
+        return names;
+    }
+
+    /*
+    returns a scratch array with room for at least size ints. contents are undefined.
+     */
+    int[] indices(final int size)
+    {
+        if (indices.length < size) {
+            indices = new int[Integer.max(size, indices.length * 2)];
+        }
+        return indices;
+    }
+
+    /*
+    sort the first size entries of the scratch array and clear references once the caller is done with them
+     */
+    void sortNames(final int size)
+    {
+        Arrays.sort(names, 0, size);
+    }
+
+    void clearNames(final int size)
+    {
+        Arrays.fill(names, 0, size, null);
+    }
+
+    StringToSignWriter append(final String value)
+    {
+        // same as StringBuilder.append(String)
+        final String s = (value == null) ? "null" : value;
+        if (capture != null) {
+            capture.append(s);
+        }
+
+        final int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (position + 4 > BUFFER_SIZE) {
+                flush();
+            }
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            }
+            else if (Character.isSurrogate(c)) {
+                // unpaired surrogate. String.getBytes() substitutes '?' as well
+                buffer[position++] = (byte) '?';
+            }
+            else {
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return this;
+    }
+
+    StringToSignWriter append(final char c)
+    {
+        if (c >= 0x80) {
+            return append(String.valueOf(c));
+        }
+        if (capture != null) {
+            capture.append(c);
+        }
+        if (position == BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    private void flush()
+    {
+        if (position > 0) {
+            mac.update(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    /*
+    returns the text written so far, or null if capture was not requested
+     */
+    String capturedText()
+    {
+        return (capture == null) ? null : capture.toString();
+    }
+
+    /*
+    complete the MAC and release the Mac reference
+     */
+    byte[] finish()
+    {
+        flush();
+        final byte[] result = mac.doFinal();
+        mac = null;
+        return result;
+    }
+}
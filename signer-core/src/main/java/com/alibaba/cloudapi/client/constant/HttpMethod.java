@@ -31,4 +31,10 @@ public class HttpMethod {
     public static final String CLOUDAPI_PUT = "PUT";
     //DELETE
     public static final String CLOUDAPI_DELETE = "DELETE";
+    //PATCH
+    public static final String CLOUDAPI_PATCH = "PATCH";
+    //HEAD
+    public static final String CLOUDAPI_HEAD = "HEAD";
+    //OPTIONS
+    public static final String CLOUDAPI_OPTIONS = "OPTIONS";
 }
@@ -0,0 +1,67 @@
+package burp;
+
+import com.alibaba.cloudapi.client.HttpRequestContext;
+import com.alibaba.cloudapi.client.benchmark.RequestShapes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+End to end cost of BurpExtender.signRequest: parse the raw request, sign it and rebuild the message. Only PUT has a
+body of its own size, so the size is part of the shape rather than a separate parameter.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SignRequestBenchmark
+{
+    @Param({"GET", "POST_FORM", "PUT_1K", "PUT_50M"})
+    String shape;
+
+    @Param({"0", "10", "50"})
+    int queryParamCount;
+
+    @Param({"1", "10", "30"})
+    int signedHeaderCount;
+
+    BurpExtender extender;
+    SigProfile profile;
+    byte[] request;
+
+    @Setup
+    public void setup()
+    {
+        extender = new BurpExtender();
+        extender.helpers = StubExtensionHelpers.create();
+        profile = new SigProfile.Builder("benchmark").withappKeyappSecret(RequestShapes.APP_KEY, RequestShapes.APP_SECRET).build();
+
+        switch (shape) {
+            case "GET":
+                request = RequestShapes.rawRequest("GET", queryParamCount, signedHeaderCount, "application/json", new byte[0]);
+                break;
+            case "POST_FORM":
+                request = RequestShapes.rawRequest("POST", queryParamCount, signedHeaderCount,
+                        "application/x-www-form-urlencoded; charset=UTF-8", RequestShapes.formBody(20));
+                break;
+            case "PUT_1K":
+                request = RequestShapes.rawRequest("PUT", queryParamCount, signedHeaderCount,
+                        "application/octet-stream", RequestShapes.body(1024));
+                break;
+            case "PUT_50M":
+                request = RequestShapes.rawRequest("PUT", queryParamCount, signedHeaderCount,
+                        "application/octet-stream", RequestShapes.body(50 * 1024 * 1024));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown shape: " + shape);
+        }
+    }
+
+    @Benchmark
+    public byte[] signRequest()
+    {
+        return extender.signRequest(HttpRequestContext.parse(request, "https", RequestShapes.HOST, 443), profile);
+    }
+}
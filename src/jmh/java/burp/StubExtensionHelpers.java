@@ -0,0 +1,49 @@
+package burp;
+
+import com.alibaba.cloudapi.client.constant.Constants;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+/*
+Just enough of IExtensionHelpers for the signing path to run without Burp. Any other method throws.
+ */
+public final class StubExtensionHelpers
+{
+    private StubExtensionHelpers() {}
+
+    public static IExtensionHelpers create()
+    {
+        return (IExtensionHelpers) Proxy.newProxyInstance(IExtensionHelpers.class.getClassLoader(),
+                new Class<?>[]{IExtensionHelpers.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "buildHttpMessage":
+                            @SuppressWarnings("unchecked")
+                            final List<String> headers = (List<String>) args[0];
+                            return buildHttpMessage(headers, (byte[]) args[1]);
+                        case "bytesToString":
+                            return new String((byte[]) args[0], Constants.CLOUDAPI_HEADER_ENCODING);
+                        case "stringToBytes":
+                            return ((String) args[0]).getBytes(Constants.CLOUDAPI_HEADER_ENCODING);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static byte[] buildHttpMessage(final List<String> headers, final byte[] body)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String header : headers) {
+            byte[] line = (header + "\r\n").getBytes(Constants.CLOUDAPI_HEADER_ENCODING);
+            out.write(line, 0, line.length);
+        }
+        out.write('\r');
+        out.write('\n');
+        if (body != null) {
+            out.write(body, 0, body.length);
+        }
+        return out.toByteArray();
+    }
+}
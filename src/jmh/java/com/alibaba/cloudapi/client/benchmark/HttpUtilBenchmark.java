@@ -0,0 +1,71 @@
+package com.alibaba.cloudapi.client.benchmark;
+
+import com.alibaba.cloudapi.client.HttpUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+Cost of producing the signed header list for each request style, including system header generation, the
+Content-MD5 digest and the signature. The header map is copied per call because buildHttpRequest modifies it.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpUtilBenchmark
+{
+    @Param({"1", "10", "30"})
+    int signedHeaderCount;
+
+    @Param({"1024", "1048576", "52428800"})
+    int bodySize;
+
+    String[] signHeaders;
+    Map<String, String> headers;
+    Map<String, String> queryParams;
+    Map<String, String> formParams;
+    byte[] body;
+
+    @Setup
+    public void setup()
+    {
+        signHeaders = RequestShapes.signedHeaderNames(signedHeaderCount);
+        headers = RequestShapes.headers(signHeaders);
+        queryParams = RequestShapes.queryParams(5);
+        formParams = RequestShapes.queryParams(10);
+        body = RequestShapes.body(bodySize);
+    }
+
+    @Benchmark
+    public List<String> httpGet()
+    {
+        return HttpUtil.httpGet(RequestShapes.APP_KEY, RequestShapes.APP_SECRET, signHeaders, RequestShapes.HOST,
+                RequestShapes.PATH, queryParams, new HashMap<>(headers));
+    }
+
+    @Benchmark
+    public List<String> httpPostForm()
+    {
+        return HttpUtil.httpPostForm(RequestShapes.APP_KEY, RequestShapes.APP_SECRET, signHeaders, RequestShapes.HOST,
+                RequestShapes.PATH, queryParams, formParams, new HashMap<>(headers));
+    }
+
+    @Benchmark
+    public List<String> httpPutBytes()
+    {
+        return HttpUtil.httpPutBytes(RequestShapes.APP_KEY, RequestShapes.APP_SECRET, signHeaders, RequestShapes.HOST,
+                RequestShapes.PATH, queryParams, body, new HashMap<>(headers));
+    }
+
+    @Benchmark
+    public String base64AndMD5()
+    {
+        return HttpUtil.base64AndMD5(body);
+    }
+}
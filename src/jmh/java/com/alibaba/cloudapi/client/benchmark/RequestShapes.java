@@ -0,0 +1,112 @@
+package com.alibaba.cloudapi.client.benchmark;
+
+import com.alibaba.cloudapi.client.constant.Constants;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+Builds realistic gateway requests for the benchmarks. Everything is derived from a fixed seed so runs are
+comparable.
+ */
+public final class RequestShapes
+{
+    public static final String HOST = "api.example.com";
+    public static final String PATH = "/v1/resources/item";
+    public static final String APP_KEY = "203812345";
+    public static final String APP_SECRET = "c2VjcmV0c2VjcmV0c2VjcmV0c2VjcmV0";
+
+    private RequestShapes() {}
+
+    /*
+    system headers first, then custom headers, up to count names
+     */
+    public static String[] signedHeaderNames(final int count)
+    {
+        final String[] systemHeaders = {"x-ca-key", "x-ca-nonce", "x-ca-timestamp", "x-ca-signature-method"};
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = (i < systemHeaders.length) ? systemHeaders[i] : "x-custom-header-" + i;
+        }
+        return names;
+    }
+
+    public static Map<String, String> queryParams(final int count)
+    {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            params.put("param" + i, "value-" + i);
+        }
+        return params;
+    }
+
+    public static Map<String, String> headers(final String[] signedHeaderNames)
+    {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Host", HOST);
+        headers.put("accept", "application/json");
+        headers.put("content-type", "application/json");
+        headers.put("User-Agent", "benchmark");
+        headers.put("x-ca-signature-headers", String.join(",", signedHeaderNames));
+        for (String name : signedHeaderNames) {
+            headers.put(name, name.startsWith("x-custom") ? "custom-value" : "placeholder");
+        }
+        return headers;
+    }
+
+    public static byte[] body(final int size)
+    {
+        byte[] body = new byte[size];
+        new Random(size).nextBytes(body);
+        return body;
+    }
+
+    /*
+    raw HTTP request as Burp would hand it to the extension
+     */
+    public static byte[] rawRequest(final String method, final int queryParamCount, final int signedHeaderCount,
+                                    final String contentType, final byte[] body)
+    {
+        StringBuilder target = new StringBuilder(PATH);
+        String separator = "?";
+        for (Map.Entry<String, String> param : queryParams(queryParamCount).entrySet()) {
+            target.append(separator).append(param.getKey()).append('=').append(param.getValue());
+            separator = "&";
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(method + " " + target + " HTTP/1.1");
+        for (Map.Entry<String, String> header : headers(signedHeaderNames(signedHeaderCount)).entrySet()) {
+            if (header.getKey().equals("content-type")) {
+                lines.add("Content-Type: " + contentType);
+            }
+            else {
+                lines.add(header.getKey() + ": " + header.getValue());
+            }
+        }
+        lines.add("x-ca-key: " + APP_KEY);
+        lines.add("Content-Length: " + body.length);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length + 2048);
+        byte[] head = (String.join("\r\n", lines) + "\r\n\r\n").getBytes(Constants.CLOUDAPI_HEADER_ENCODING);
+        out.write(head, 0, head.length);
+        out.write(body, 0, body.length);
+        return out.toByteArray();
+    }
+
+    public static byte[] formBody(final int fieldCount)
+    {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < fieldCount; i++) {
+            if (i > 0) {
+                form.append('&');
+            }
+            form.append("field").append(i).append('=').append("form+value%20").append(i);
+        }
+        return form.toString().getBytes(Constants.CLOUDAPI_ENCODING);
+    }
+}
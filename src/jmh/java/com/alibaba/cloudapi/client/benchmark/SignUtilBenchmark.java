@@ -0,0 +1,45 @@
+package com.alibaba.cloudapi.client.benchmark;
+
+import com.alibaba.cloudapi.client.SignUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+Cost of computing a signature over already-collected headers and parameters.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SignUtilBenchmark
+{
+    @Param({"0", "10", "50"})
+    int queryParamCount;
+
+    @Param({"1", "10", "30"})
+    int signedHeaderCount;
+
+    String[] signHeaders;
+    Map<String, String> headers;
+    Map<String, String> queryParams;
+
+    @Setup
+    public void setup()
+    {
+        signHeaders = RequestShapes.signedHeaderNames(signedHeaderCount);
+        // sign() adds x-ca-signature-headers to the map, which is idempotent across invocations
+        headers = new HashMap<>(RequestShapes.headers(signHeaders));
+        queryParams = RequestShapes.queryParams(queryParamCount);
+    }
+
+    @Benchmark
+    public String sign()
+    {
+        return SignUtil.sign(RequestShapes.APP_SECRET, signHeaders, "GET", headers, RequestShapes.PATH, queryParams, null);
+    }
+}
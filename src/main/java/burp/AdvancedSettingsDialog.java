@@ -1,5 +1,7 @@
 package burp;
 
+import com.alibaba.cloudapi.client.ContentMd5Cache;
+import com.alibaba.cloudapi.client.NonceGenerator;
 import lombok.Getter;
 
 import javax.swing.*;
@@ -10,6 +12,8 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.StringSelection;
 import java.awt.datatransfer.UnsupportedFlavorException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class AdvancedSettingsDialog extends JDialog {
 
@@ -29,10 +33,37 @@ public class AdvancedSettingsDialog extends JDialog {
     private JTextField presignedUrlLifetimeTextField = new JTextField(Long.toString(ExtensionSettings.PRESIGNED_URL_LIFETIME_DEFAULT_SECONDS), 5);
 
     protected final JCheckBox preserveHeaderOrderCheckBox = new JCheckBox("Preserve Header Order");
+    protected final JCheckBox contentMd5CacheCheckBox = new JCheckBox("Cache Content-MD5 of Large Bodies");
     private final JComboBox<String> contentMD5HeaderBehaviorComboBox = new JComboBox<>();
+    private final JComboBox<String> nonceModeComboBox = new JComboBox<>(new String[]{NonceGenerator.MODE_SECURE, NonceGenerator.MODE_SEQUENTIAL});
+    @Getter private long nonceSeed = 0;
+    private final JTextField nonceSeedTextField = new JTextField("0", 10);
+    protected final JCheckBox nonceReplayCheckBox = new JCheckBox("Check for Repeats");
+    private final List<Runnable> settingsChangedListeners = new ArrayList<>();
 
     public String getContentMD5HeaderBehavior() {
-        return contentMD5HeaderBehaviorComboBox.getSelectedItem().toString();
+        final Object behavior = contentMD5HeaderBehaviorComboBox.getSelectedItem();
+        return (behavior == null) ? ExtensionSettings.CONTENT_MD5_DEFAULT : behavior.toString();
+    }
+
+    public String getNonceMode() {
+        final Object mode = nonceModeComboBox.getSelectedItem();
+        return (mode == null) ? ExtensionSettings.NONCE_MODE_DEFAULT : mode.toString();
+    }
+
+    /*
+    listener is invoked on the EDT whenever a setting in this dialog changes
+     */
+    public void addSettingsChangedListener(final Runnable listener) {
+        for (JCheckBox checkBox : new JCheckBox[]{signingEnabledForProxyCheckbox, signingEnabledForSpiderCheckBox,
+                signingEnabledForScannerCheckBox, signingEnabledForIntruderCheckBox, signingEnabledForRepeaterCheckBox,
+                signingEnabledForSequencerCheckBox, signingEnabledForExtenderCheckBox, preserveHeaderOrderCheckBox,
+                contentMd5CacheCheckBox, nonceReplayCheckBox}) {
+            checkBox.addItemListener(itemEvent -> listener.run());
+        }
+        contentMD5HeaderBehaviorComboBox.addActionListener(actionEvent -> listener.run());
+        nonceModeComboBox.addActionListener(actionEvent -> listener.run());
+        settingsChangedListeners.add(listener);
     }
 
     private AdvancedSettingsDialog(Frame owner, String title, boolean modal) {
@@ -57,6 +88,35 @@ public class AdvancedSettingsDialog extends JDialog {
         c00.anchor = GridBagConstraints.LINE_START;
         outerPanel.add(toolPanel, c00);
 
+        JPanel requestPanel = new JPanel();
+        requestPanel.setBorder(new TitledBorder("Signed Requests"));
+        preserveHeaderOrderCheckBox.setToolTipText("Keep headers in their original order. Otherwise headers are sorted by name.");
+        requestPanel.add(preserveHeaderOrderCheckBox);
+        contentMd5CacheCheckBox.setToolTipText(String.format("Keep up to %d MB of recently signed bodies so resending the same body skips hashing it",
+                ContentMd5Cache.DEFAULT_MAX_BYTES / (1024 * 1024)));
+        requestPanel.add(contentMd5CacheCheckBox);
+        GridBagConstraints c03 = new GridBagConstraints();
+        c03.gridx = 0;
+        c03.gridy = outerPanelY++;
+        c03.anchor = GridBagConstraints.LINE_START;
+        outerPanel.add(requestPanel, c03);
+
+        JPanel noncePanel = new JPanel();
+        noncePanel.setBorder(new TitledBorder("x-ca-nonce"));
+        nonceModeComboBox.setToolTipText("secure: random UUIDs. sequential: the same UUIDs for the same seed, for reproducible tests only.");
+        nonceModeComboBox.addActionListener(actionEvent -> nonceSeedTextField.setEnabled(NonceGenerator.MODE_SEQUENTIAL.equals(getNonceMode())));
+        nonceReplayCheckBox.setToolTipText(String.format("Never reuse a nonce within the last %d issued", ExtensionSettings.NONCE_REPLAY_WINDOW));
+        noncePanel.add(new JLabel("Mode"));
+        noncePanel.add(nonceModeComboBox);
+        noncePanel.add(new JLabel("Seed"));
+        noncePanel.add(nonceSeedTextField);
+        noncePanel.add(nonceReplayCheckBox);
+        GridBagConstraints c05 = new GridBagConstraints();
+        c05.gridx = 0;
+        c05.gridy = outerPanelY++;
+        c05.anchor = GridBagConstraints.LINE_START;
+        outerPanel.add(noncePanel, c05);
+
 
         // import/export settings json with dialogs
         JPanel importExportPanel = new JPanel();
@@ -157,6 +217,7 @@ public class AdvancedSettingsDialog extends JDialog {
         okButton.addActionListener(actionEvent -> {
             try {
                 validateSettings();
+                settingsChangedListeners.forEach(Runnable::run);
                 setVisible(false);
                 statusLabel.setText(DEFAULT_STATUS_LABEL_TEXT);
             } catch (IllegalArgumentException e) {
@@ -193,6 +254,12 @@ public class AdvancedSettingsDialog extends JDialog {
                     ExtensionSettings.PRESIGNED_URL_LIFETIME_MIN_SECONDS, ExtensionSettings.PRESIGNED_URL_LIFETIME_MAX_SECONDS));
         }
         presignedUrlLifetimeSeconds = lifetime;
+
+        try {
+            nonceSeed = Long.parseLong(nonceSeedTextField.getText().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected an integer for nonce seed");
+        }
     }
 
     public void applyExtensionSettings(final ExtensionSettings settings) {
@@ -204,8 +271,14 @@ public class AdvancedSettingsDialog extends JDialog {
         signingEnabledForSequencerCheckBox.setSelected(settings.signingEnabledForSequencer());
         signingEnabledForExtenderCheckBox.setSelected(settings.signingEnabledForExtender());
 
-        /*  preserveHeaderOrderCheckBox.setSelected(settings.preserveHeaderOrder());
-      contentMD5HeaderBehaviorComboBox.setSelectedItem(settings.contentMD5HeaderBehavior());
+        preserveHeaderOrderCheckBox.setSelected(settings.preserveHeaderOrder());
+        contentMd5CacheCheckBox.setSelected(settings.contentMd5Cache());
+        nonceSeed = settings.nonceSeed();
+        nonceSeedTextField.setText(Long.toString(nonceSeed));
+        nonceModeComboBox.setSelectedItem(settings.nonceMode());
+        nonceSeedTextField.setEnabled(NonceGenerator.MODE_SEQUENTIAL.equals(getNonceMode()));
+        nonceReplayCheckBox.setSelected(settings.nonceReplayCheck());
+        /*contentMD5HeaderBehaviorComboBox.setSelectedItem(settings.contentMD5HeaderBehavior());
         presignedUrlLifetimeSeconds = settings.presignedUrlLifetimeInSeconds();*/
     }
 
@@ -0,0 +1,198 @@
+package burp;
+
+import com.alibaba.cloudapi.client.HttpRequestContext;
+import org.apache.commons.text.StringEscapeUtils;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Re-signs a selection of messages, eg from proxy history, with a few workers on the extension's signing executor.
+Messages in those views are read-only, so each signed request is sent again through Burp and the new request and
+response are added to the site map. Workers take the next message from a shared index, so only a fixed number of
+tasks exist however large the selection. A non-modal dialog shows progress and lets the user cancel; a summary of
+sent, skipped and failed messages is shown at the end.
+ */
+public class BatchSigner
+{
+    private static final int MAX_WORKERS = 8;
+    private static final int MAX_REPORTED_ERRORS = 10;
+    private static final int PROGRESS_REFRESH_MILLIS = 100;
+
+    private final BurpExtender extender;
+    private final IHttpRequestResponse[] messages;
+    private final SigProfile profile; // null to choose the profile by x-ca-key
+
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    private JDialog progressDialog;
+    private JProgressBar progressBar;
+    private Timer progressTimer;
+    private String rejectedReason; // set on the EDT if no worker could be started
+
+    public BatchSigner(final BurpExtender extender, final IHttpRequestResponse[] messages, final SigProfile profile)
+    {
+        this.extender = extender;
+        this.messages = messages;
+        this.profile = profile;
+    }
+
+    /*
+    show the progress dialog and start signing. call on the EDT.
+     */
+    public void start(final Component parent)
+    {
+        final int workers = Math.max(1, Math.min(Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()), messages.length));
+
+        showProgressDialog(parent);
+        runningWorkers.set(workers);
+        int submitted = 0;
+        try {
+            for (; submitted < workers; submitted++) {
+                extender.getSigningExecutor().execute(this::work);
+            }
+        } catch (RejectedExecutionException exc) {
+            // run with the workers we got. with none, finish() reports everything as not run
+            LogWriter.getLogger().error("Re-sign selected: %d of %d workers started: %s", submitted, workers, exc.getMessage());
+            if (submitted == 0) {
+                rejectedReason = exc.getMessage();
+            }
+        }
+        // workers that were never started will not count themselves down
+        if (submitted < workers && runningWorkers.addAndGet(submitted - workers) == 0) {
+            finish();
+        }
+    }
+
+    public void cancel()
+    {
+        cancelled.set(true);
+    }
+
+    private void work()
+    {
+        try {
+            int index;
+            while (!cancelled.get() && !Thread.currentThread().isInterrupted() && (index = nextIndex.getAndIncrement()) < messages.length) {
+                signOne(index);
+                completed.incrementAndGet();
+            }
+        } finally {
+            if (runningWorkers.decrementAndGet() == 0) {
+                SwingUtilities.invokeLater(this::finish);
+            }
+        }
+    }
+
+    private void signOne(final int index)
+    {
+        final IHttpRequestResponse message = messages[index];
+        try {
+            final HttpRequestContext request = BurpExtender.parseRequest(message);
+            if (!extender.isAPIGatewayRequest(request)) {
+                skipped.incrementAndGet();
+                return;
+            }
+            final SigProfile signingProfile = (profile != null) ? profile : extender.getSigningProfile(request);
+            if (signingProfile == null) {
+                throw new IllegalArgumentException("no profile for x-ca-key");
+            }
+            final IHttpRequestResponse response = extender.callbacks.makeHttpRequest(message.getHttpService(),
+                    extender.signRequest(request, signingProfile));
+            if (response == null || response.getResponse() == null) {
+                throw new IllegalStateException("no response from " + message.getHttpService().getHost());
+            }
+            extender.callbacks.addToSiteMap(response);
+            sent.incrementAndGet();
+        } catch (RuntimeException exc) {
+            recordError(index, exc.toString());
+        }
+    }
+
+    private void recordError(final int index, final String error)
+    {
+        failed.incrementAndGet();
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(String.format("#%d: %s", index + 1, error));
+        }
+    }
+
+    private void showProgressDialog(final Component parent)
+    {
+        progressBar = new JProgressBar(0, messages.length);
+        progressBar.setStringPainted(true);
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(actionEvent -> {
+            cancel();
+            cancelButton.setEnabled(false);
+        });
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(new JLabel(String.format("Signing and sending %d message(s) with %s", messages.length,
+                (profile == null) ? "the profile matching each x-ca-key" : "profile " + profile.getName())), BorderLayout.PAGE_START);
+        panel.add(progressBar, BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(cancelButton);
+        panel.add(buttonPanel, BorderLayout.PAGE_END);
+
+        progressDialog = new JDialog(SwingUtilities.getWindowAncestor(parent), BurpExtender.DISPLAY_NAME + ": Re-sign and Send Selected");
+        progressDialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        progressDialog.add(panel);
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(parent);
+        progressDialog.setVisible(true);
+
+        // poll instead of posting an event per message
+        progressTimer = new Timer(PROGRESS_REFRESH_MILLIS, actionEvent -> progressBar.setValue(completed.get()));
+        progressTimer.start();
+    }
+
+    private void finish()
+    {
+        progressTimer.stop();
+        progressDialog.dispose();
+
+        StringBuilder summary = new StringBuilder();
+        if (rejectedReason != null) {
+            summary.append("Signing is busy, try again shortly: ").append(StringEscapeUtils.escapeHtml4(rejectedReason)).append("<br>");
+        }
+        summary.append(String.format("Sent: %d (added to the site map)<br>Skipped (not API Gateway requests): %d<br>Failed: %d",
+                sent.get(), skipped.get(), failed.get()));
+        final int notRun = messages.length - completed.get();
+        if (notRun > 0) {
+            summary.append(String.format("<br>Cancelled: %d", notRun));
+        }
+        synchronized (errors) {
+            for (String error : errors) {
+                summary.append("<br>").append(StringEscapeUtils.escapeHtml4(error));
+            }
+        }
+        if (failed.get() > errors.size()) {
+            summary.append("<br>...");
+        }
+        LogWriter.getLogger().info("Re-sign selected: %d sent, %d skipped, %d failed, %d cancelled",
+                sent.get(), skipped.get(), failed.get(), notRun);
+        // nothing sent although something was tried: report it as an error, not a normal summary
+        final boolean allFailed = sent.get() == 0 && (failed.get() > 0 || rejectedReason != null);
+        if (allFailed) {
+            summary.insert(0, "No request was sent.<br>");
+        }
+        JOptionPane.showMessageDialog(extender.getUiComponent(), "<html>" + summary + "</html>",
+                BurpExtender.DISPLAY_NAME + ": Re-sign and Send Selected",
+                allFailed ? JOptionPane.ERROR_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+    }
+}
@@ -6,7 +6,14 @@ import org.apache.commons.text.StringEscapeUtils;
 import com.google.gson.*;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
+import com.alibaba.cloudapi.client.ContentMd5Cache;
+import com.alibaba.cloudapi.client.HeaderList;
+import com.alibaba.cloudapi.client.HttpRequestContext;
 import com.alibaba.cloudapi.client.HttpUtil;
+import com.alibaba.cloudapi.client.NonceGenerator;
+import com.alibaba.cloudapi.client.RequestSigner;
+import com.alibaba.cloudapi.client.SignResult;
+import com.alibaba.cloudapi.client.SignUtil;
 import com.alibaba.cloudapi.client.constant.SystemHeader;
 
 
@@ -15,15 +22,16 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URL;
-import java.net.URLDecoder;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -31,7 +39,8 @@ import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 
-public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtensionStateListener, IContextMenuFactory
+public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtensionStateListener, IContextMenuFactory,
+        ISessionHandlingAction
 {
     // make sure to update version in build.gradle as well
     private static final String EXTENSION_VERSION = "0.1.0";
@@ -39,20 +48,22 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
     private static final String BURP_SETTINGS_KEY = "JsonSettings";
     private static final String SETTING_VERSION = "ExtensionVersion";
     private static final String SETTING_LOG_LEVEL = "LogLevel";
-    private static final String SETTING_CONFIG_VERSION = "SettingsVersion";
 
     public static final String EXTENSION_NAME = "Aliyun API Gateway Signer"; // Name in extender menu
     public static final String DISPLAY_NAME = "Aliyun API Signer"; // name for tabs, menu, and other UI components
 
     private static final String NO_DEFAULT_PROFILE = "        "; // ensure combobox is visible. SigProfile.profileNamePattern doesn't allow this name
 
-    private static final String SIGNATURE_HEADERS = "x-ca-signature-headers";
     private static final String SIGNATURE_KEY = "x-ca-key";
+    private static final String SIGNING_THREAD_NAME = "AliyunSigner";
+    private static final int MAX_PENDING_SIGNING_TASKS = 64; // for actions started from the UI
+    private static final int MAX_SESSION_SIGNATURES = 4096; // session-signed requests not yet seen by the listener
     // define headers for internal use
     protected IExtensionHelpers helpers;
     protected IBurpExtenderCallbacks callbacks;
-    private HashMap<String, String> signProfileKeyMap; // map appKey to profile
-    private HashMap<String, SigProfile> signProfileMap; // map name to profile
+    private final SigProfileRegistry profileRegistry = new SigProfileRegistry(); // profiles by name and appKey
+    // signatures set by the session handling action. the listener sees those requests next and leaves them alone.
+    private final Set<String> sessionSignatures = ConcurrentHashMap.newKeySet();
     protected LogWriter logger = LogWriter.getLogger();
 
     private JLabel statusLabel;
@@ -64,6 +75,13 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
     private JCheckBox customSignHeaderCheckBox;
     private JTextField additionalSignedHeadersField;
     private AdvancedSettingsDialog advancedSettingsDialog;
+    private SignTracePanel signTracePanel;
+    private SigningExecutor signingExecutor;
+
+    // settings read by signing threads. only published from the EDT, see publishSettings()
+    private volatile ExtensionSettings settingsSnapshot = ExtensionSettings.builder().build();
+    private String appliedNonceSettings = null; // mode:seed:replayWindow of the current nonce generator. EDT only.
+    private boolean settingsUiReady = false;
 
     private JTable profileTable;
     private JScrollPane outerScrollPane;
@@ -106,8 +124,12 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         checkBoxPanel.add(inScopeOnlyCheckBox);
         checkBoxPanel.add(persistProfilesCheckBox);
         checkBoxPanel.add(customSignHeaderCheckBox);
+        signingEnabledCheckBox.addItemListener(itemEvent -> publishSettings());
+        inScopeOnlyCheckBox.addItemListener(itemEvent -> publishSettings());
+        persistProfilesCheckBox.addItemListener(itemEvent -> publishSettings());
         JPanel otherSettingsPanel = new JPanel();
         defaultProfileComboBox = new JComboBox<>();
+        defaultProfileComboBox.addActionListener(actionEvent -> publishSettings());
         logLevelComboBox = new JComboBox<>();
         otherSettingsPanel.add(new JLabel("Log Level"));
         otherSettingsPanel.add(logLevelComboBox);
@@ -122,6 +144,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         checkBoxPanel.add(advancedSettingsButton);
         advancedSettingsDialog = AdvancedSettingsDialog.get();
         advancedSettingsDialog.applyExtensionSettings(new ExtensionSettings()); // load with defaults for now
+        advancedSettingsDialog.addSettingsChangedListener(this::publishSettings);
 
         GridBagConstraints c00 = new GridBagConstraints(); c00.anchor = GridBagConstraints.FIRST_LINE_START; c00.gridy = 0; c00.gridwidth = 2;
         GridBagConstraints c01 = new GridBagConstraints(); c01.anchor = GridBagConstraints.FIRST_LINE_START; c01.gridy = 1; c01.gridwidth = 2; c01.insets = new Insets(10, 0, 10, 0);
@@ -191,6 +214,14 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         additionalHeadersLabel.setForeground(this.textOrange);
         additionalHeadersLabel.setFont(sectionFont);
         additionalSignedHeadersField = new JTextField("", 65);
+        // publish when editing is done rather than on every keystroke
+        additionalSignedHeadersField.addActionListener(actionEvent -> publishSettings());
+        additionalSignedHeadersField.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent focusEvent) {
+                publishSettings();
+            }
+        });
         GridBagConstraints c200 = new GridBagConstraints(); c200.gridy = 0; c200.gridwidth = 2; c200.anchor = GridBagConstraints.FIRST_LINE_START;
         GridBagConstraints c201 = new GridBagConstraints(); c201.gridy = 1; c201.gridwidth = 2; c201.anchor = GridBagConstraints.FIRST_LINE_START; c201.insets = new Insets(10, 0, 10, 0);
         GridBagConstraints c202 = new GridBagConstraints(); c202.gridy = 2; c202.anchor = GridBagConstraints.FIRST_LINE_START;
@@ -198,6 +229,11 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         additionalSignedHeadersPanel.add(new JLabel("Specify comma-separated header names from the request to include in the signature. eg, x-ca-signature-headers: x-ca-key,x-ca-nonce,x-ca-signaturemethod,x-ca-stage"), c201);
         additionalSignedHeadersPanel.add(additionalSignedHeadersField, c202);
 
+        //
+        // signing trace
+        //
+        signTracePanel = new SignTracePanel(sectionFont, this::updateSignTraceListener);
+
         //
         // put it all together
         //
@@ -224,6 +260,10 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         c.fill = GridBagConstraints.HORIZONTAL;
         outerPanel.add(new JSeparator(SwingConstants.HORIZONTAL), c);
         outerPanel.add(additionalSignedHeadersPanel, sectionConstraints.remove(0));
+        c = sectionConstraints.remove(0);
+        c.fill = GridBagConstraints.HORIZONTAL;
+        outerPanel.add(new JSeparator(SwingConstants.HORIZONTAL), c);
+        outerPanel.add(signTracePanel, sectionConstraints.remove(0));
 
         // use outerOuterPanel to force components north
         JPanel outerOuterPanel = new JPanel(new BorderLayout());
@@ -243,7 +283,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
                 callbacks.customizeUiComponent(dialog);
                 dialog.setVisible(true);
                 // set first profile added as the default
-                if (signProfileMap.size() == 1 && dialog.getNewProfileName() != null) {
+                if (profileRegistry.size() == 1 && dialog.getNewProfileName() != null) {
                     setDefaultProfileName(dialog.getNewProfileName());
                 }
             }
@@ -257,7 +297,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
                 if (rowIndeces.length == 1) {
                     DefaultTableModel model = (DefaultTableModel) profileTable.getModel();
                     final String name = (String) model.getValueAt(rowIndeces[0], 0);
-                    JDialog dialog = new SigProfileEditorDialog(null, "Edit Profile", true, signProfileMap.get(name));
+                    JDialog dialog = new SigProfileEditorDialog(null, "Edit Profile", true, profileRegistry.get(name));
                     callbacks.customizeUiComponent(dialog);
                     dialog.setVisible(true);
                 }
@@ -277,7 +317,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
                     profileNames.add((String) model.getValueAt(rowIndex, 0));
                 }
                 for (final String name : profileNames) {
-                    deleteProfile(signProfileMap.get(name));
+                    deleteProfile(profileRegistry.get(name));
                 }
             }
         });
@@ -306,10 +346,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
                 chooser.setFileHidingEnabled(false);
                 if (chooser.showOpenDialog(getUiComponent()) == JFileChooser.APPROVE_OPTION) {
                     final Path exportPath = Paths.get(chooser.getSelectedFile().getPath());
-                    ArrayList<SigProfile> sigProfiles = new ArrayList<>();
-                    for (final String name : signProfileMap.keySet()) {
-                        sigProfiles.add(signProfileMap.get(name));
-                    }
+                    ArrayList<SigProfile> sigProfiles = new ArrayList<>(profileRegistry.getProfileMap().values());
                     int exportCount = SigProfile.exportToFilePath(sigProfiles, exportPath);
                     final String msg = String.format("Exported %d profiles to %s", exportCount, exportPath);
                     JOptionPane.showMessageDialog(getUiComponent(), formatMessageHtml(msg));
@@ -348,15 +385,114 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
             public void actionPerformed(ActionEvent actionEvent)
             {
                 logger.setLevel(((LogLevelComboBoxItem) logLevelComboBox.getSelectedItem()).logLevel);
+                updateSignTraceListener();
+                publishSettings();
+            }
+        });
+
+        settingsUiReady = true;
+        publishSettings();
+    }
+
+    /*
+    call this when the log level or trace panel capture setting changes. the signing trace is only
+    collected if something will display it.
+     */
+    private void updateSignTraceListener()
+    {
+        final boolean logTrace = logger.getLevel() <= LogWriter.DEBUG_LEVEL;
+        final boolean panelTrace = signTracePanel != null && signTracePanel.isCaptureEnabled();
+        if (!logTrace && !panelTrace) {
+            SignUtil.setTraceListener(null);
+            return;
+        }
+        SignUtil.setTraceListener((stringToSign, signedHeaders, signature, elapsedNanos) -> {
+            if (logTrace) {
+                logger.debug(String.format("\n=======STRING TO SIGN (%d us)==========\n%s\n=======SIGNED HEADERS: %s\n=======SIGNATURE: %s",
+                        elapsedNanos / 1000, stringToSign, signedHeaders, signature));
+            }
+            if (panelTrace) {
+                signTracePanel.signed(stringToSign, signedHeaders, signature, elapsedNanos);
             }
         });
     }
 
     public boolean isSigningEnabled()
     {
-        return this.signingEnabledCheckBox.isSelected();
+        return this.settingsSnapshot.extensionEnabled();
+    }
+    public boolean isInScopeOnlyEnabled() { return this.settingsSnapshot.inScopeOnly(); }
+
+    /*
+    Current settings. Safe to call from any thread; the returned object never changes.
+     */
+    public ExtensionSettings getSettings()
+    {
+        return this.settingsSnapshot;
+    }
+
+    /*
+    Capture the state of all UI controls into a new immutable snapshot for the signing threads. Must be called
+    on the EDT whenever a control changes.
+     */
+    private void publishSettings()
+    {
+        if (!settingsUiReady) {
+            return;
+        }
+        this.settingsSnapshot = getSettingsBuilderFromUI().build();
+        applyNonceSettings(this.settingsSnapshot);
+        applyContentMd5CacheSetting(this.settingsSnapshot);
+    }
+
+    private void applyContentMd5CacheSetting(final ExtensionSettings settings)
+    {
+        if (settings.contentMd5Cache() != (HttpUtil.getContentMd5Cache() != null)) {
+            HttpUtil.setContentMd5Cache(settings.contentMd5Cache() ? new ContentMd5Cache() : null);
+        }
+    }
+
+    /*
+    replace the x-ca-nonce generator when its settings change. left alone otherwise, so a sequential generator is
+    not restarted by unrelated setting changes.
+     */
+    private void applyNonceSettings(final ExtensionSettings settings)
+    {
+        final int replayWindow = settings.nonceReplayCheck() ? ExtensionSettings.NONCE_REPLAY_WINDOW : 0;
+        final String nonceSettings = settings.nonceMode() + ":" + settings.nonceSeed() + ":" + replayWindow;
+        if (nonceSettings.equals(this.appliedNonceSettings)) {
+            return;
+        }
+        HttpUtil.setNonceGenerator(NonceGenerator.create(settings.nonceMode(), settings.nonceSeed(), replayWindow));
+        this.appliedNonceSettings = nonceSettings;
+        logger.info("Nonce generator: %s", nonceSettings);
+    }
+
+    private ExtensionSettings.ExtensionSettingsBuilder getSettingsBuilderFromUI()
+    {
+        return ExtensionSettings.builder()
+                .logLevel(this.logger.getLevel())
+                .extensionVersion(EXTENSION_VERSION)
+                .persistProfiles(this.persistProfilesCheckBox.isSelected())
+                .extensionEnabled(this.signingEnabledCheckBox.isSelected())
+                .defaultProfileName(this.getDefaultProfileName())
+                .additionalSignedHeaderNames(getAdditionalSignedHeadersFromUI())
+                .inScopeOnly(this.inScopeOnlyCheckBox.isSelected())
+                .preserveHeaderOrder(this.advancedSettingsDialog.preserveHeaderOrderCheckBox.isSelected())
+                .presignedUrlLifetimeInSeconds(this.advancedSettingsDialog.getPresignedUrlLifetimeSeconds())
+                .contentMD5HeaderBehavior(this.advancedSettingsDialog.getContentMD5HeaderBehavior())
+                .contentMd5Cache(this.advancedSettingsDialog.contentMd5CacheCheckBox.isSelected())
+                .nonceMode(this.advancedSettingsDialog.getNonceMode())
+                .nonceSeed(this.advancedSettingsDialog.getNonceSeed())
+                .nonceReplayCheck(this.advancedSettingsDialog.nonceReplayCheckBox.isSelected())
+                .signingEnabledForProxy(advancedSettingsDialog.signingEnabledForProxyCheckbox.isSelected())
+                .signingEnabledForSpider(advancedSettingsDialog.signingEnabledForSpiderCheckBox.isSelected())
+                .signingEnabledForScanner(advancedSettingsDialog.signingEnabledForScannerCheckBox.isSelected())
+                .signingEnabledForIntruder(advancedSettingsDialog.signingEnabledForIntruderCheckBox.isSelected())
+                .signingEnabledForRepeater(advancedSettingsDialog.signingEnabledForRepeaterCheckBox.isSelected())
+                .signingEnabledForSequencer(advancedSettingsDialog.signingEnabledForSequencerCheckBox.isSelected())
+                .signingEnabledForExtender(advancedSettingsDialog.signingEnabledForExtenderCheckBox.isSelected());
     }
-    public boolean isInScopeOnlyEnabled() { return this.inScopeOnlyCheckBox.isSelected(); }
 
     private void setLogLevel(final int level)
     {
@@ -365,6 +501,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         if (this.logLevelComboBox != null) {
             this.logLevelComboBox.setSelectedIndex(logger.getLevel());
         }
+        updateSignTraceListener();
     }
 
     // format a message for display in a dialog. applies reasonable word-wrapping.
@@ -386,6 +523,10 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         callbacks.registerExtensionStateListener(this);
 
         this.logger.configure(callbacks.getStdout(), callbacks.getStderr(), LogWriter.DEFAULT_LEVEL);
+        // keep Burp's output streams off the signing threads
+        this.logger.startAsync(LogWriter.DEFAULT_ASYNC_CAPACITY);
+        this.signingExecutor = new SigningExecutor(SIGNING_THREAD_NAME, MAX_PENDING_SIGNING_TASKS, true);
+        logger.info("Signing executor uses %s threads", signingExecutor.isVirtual() ? "virtual" : "platform");
         final String setting = this.callbacks.loadExtensionSetting(SETTING_LOG_LEVEL);
         if (setting != null) {
             try {
@@ -395,9 +536,6 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
             }
         }
 
-        this.signProfileKeyMap = new HashMap<>();
-        this.signProfileMap = new HashMap<>();
-
         SwingUtilities.invokeLater(new Runnable()
         {
             @Override
@@ -408,6 +546,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
                 callbacks.addSuiteTab(BurpExtender.this);
                 callbacks.registerHttpListener(BurpExtender.this);
                 callbacks.registerContextMenuFactory(BurpExtender.this);
+                callbacks.registerSessionHandlingAction(BurpExtender.this);
                 logger.info(String.format("Loaded %s %s", EXTENSION_NAME, EXTENSION_VERSION));
             }
         });
@@ -443,26 +582,10 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
 
     protected String exportExtensionSettingsToJson()
     {
-        ExtensionSettings.ExtensionSettingsBuilder builder = ExtensionSettings.builder()
-                .logLevel(this.logger.getLevel())
-                .extensionVersion(EXTENSION_VERSION)
-                .persistProfiles(this.persistProfilesCheckBox.isSelected())
-                .extensionEnabled(this.signingEnabledCheckBox.isSelected())
-                .defaultProfileName(this.getDefaultProfileName())
-                .additionalSignedHeaderNames(getAdditionalSignedHeadersFromUI())
-                .inScopeOnly(this.inScopeOnlyCheckBox.isSelected())
-                .preserveHeaderOrder(this.advancedSettingsDialog.preserveHeaderOrderCheckBox.isSelected())
-                .presignedUrlLifetimeInSeconds(this.advancedSettingsDialog.getPresignedUrlLifetimeSeconds())
-                .contentMD5HeaderBehavior(this.advancedSettingsDialog.getContentMD5HeaderBehavior())
-                .signingEnabledForSpider(advancedSettingsDialog.signingEnabledForSpiderCheckBox.isSelected())
-                .signingEnabledForScanner(advancedSettingsDialog.signingEnabledForScannerCheckBox.isSelected())
-                .signingEnabledForIntruder(advancedSettingsDialog.signingEnabledForIntruderCheckBox.isSelected())
-                .signingEnabledForRepeater(advancedSettingsDialog.signingEnabledForRepeaterCheckBox.isSelected())
-                .signingEnabledForSequencer(advancedSettingsDialog.signingEnabledForSequencerCheckBox.isSelected())
-                .signingEnabledForExtender(advancedSettingsDialog.signingEnabledForExtenderCheckBox.isSelected());
+        ExtensionSettings.ExtensionSettingsBuilder builder = getSettingsBuilderFromUI();
         if (this.persistProfilesCheckBox.isSelected()) {
-            builder.profiles(this.signProfileMap);
-            logger.info(String.format("Saved %d profile(s)", this.signProfileMap.size()));
+            builder.profiles(this.profileRegistry.getProfileMap());
+            logger.info(String.format("Saved %d profile(s)", this.profileRegistry.size()));
         }
         ExtensionSettings settings = builder.build();
         return getGsonSerializer(settings.settingsVersion()).toJson(settings);
@@ -475,10 +598,12 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
             return;
         }
 
+        // the version the settings were saved with, so settings added since then keep their defaults.
+        // files without one predate versioning.
         double settingsVersion = 0.0;
         try {
-            settingsVersion = Integer.parseInt(callbacks.loadExtensionSetting(SETTING_CONFIG_VERSION));
-        } catch (NumberFormatException ignored) {
+            settingsVersion = JsonParser.parseString(jsonString).getAsJsonObject().get("settingsVersion").getAsDouble();
+        } catch (RuntimeException ignored) {
         }
 
         ExtensionSettings settings;
@@ -517,7 +642,12 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
             settings = settings.withContentMD5HeaderBehavior(ExtensionSettings.CONTENT_MD5_DEFAULT);
         }
 
+        if (!Arrays.asList(NonceGenerator.MODE_SECURE, NonceGenerator.MODE_SEQUENTIAL).contains(settings.nonceMode())) {
+            settings = settings.withNonceMode(ExtensionSettings.NONCE_MODE_DEFAULT);
+        }
+
         advancedSettingsDialog.applyExtensionSettings(settings);
+        publishSettings();
     }
 
     private void saveExtensionSettings()
@@ -551,7 +681,15 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
     public void extensionUnloaded()
     {
         saveExtensionSettings();
+        SignUtil.setTraceListener(null);
+        if (signTracePanel != null) {
+            signTracePanel.dispose();
+        }
+        if (signingExecutor != null) {
+            signingExecutor.shutdown();
+        }
         logger.info("Unloading "+EXTENSION_NAME);
+        logger.stopAsync();
     }
 
     @Override
@@ -589,7 +727,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
 
         // add all profile names to menu, along with a listener to set the default profile when selected
         for (final String name : profileList) {
-            item = new JRadioButtonMenuItem(name, isSigningEnabled() && name.equals(getDefaultProfileName()));
+            item = new JRadioButtonMenuItem(name, isSigningEnabled() && name.equals(getSettings().defaultProfileName()));
             item.addActionListener(new ActionListener()
             {
                 @Override
@@ -625,52 +763,117 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
                             public void actionPerformed(ActionEvent actionEvent)
                             {
                                 final String profileName = actionEvent.getActionCommand();
-                                SigProfile profile = signProfileMap.get(profileName);
+                                SigProfile profile = profileRegistry.get(profileName);
                                 if (profile == null) {
                                     // this should never happen since the menu is populated with existing profile names
                                     JOptionPane.showMessageDialog(getUiComponent(), formatMessageHtml("Profile name does not exist: "+profileName));
                                     return;
                                 }
                                 final SigProfile profileCopy = profile; // reference copy is fine here
-                                (new Thread(() -> {
+                                // the editor is only read and updated on the EDT. signing runs on the executor.
+                                final HttpRequestContext request;
+                                try {
+                                    request = parseRequest(messages[0]);
+                                } catch (IllegalArgumentException exc) {
+                                    JOptionPane.showMessageDialog(getUiComponent(), formatMessageHtml("Failed to add signature: " + exc.getMessage()));
+                                    return;
+                                }
+                                executeSigningTask(() -> {
                                     try {
                                         // XXX we do some work to prevent custom signed headers specified in the SigV4 UI from
                                         // showing up in the Raw message editor tab to prevent them from being duplicated when
                                         // it's signed again. consider modifying signRequest() to optionally skip adding these.
-                                        final byte[] signedRequest = signRequest(messages[0], profileCopy);
+                                        final byte[] signedRequest = signRequest(request, profileCopy);
                                         if (signedRequest == null || signedRequest.length == 0) {
                                             throw new NullPointerException("Request signing failed for profile: "+profileCopy.getName());
                                         }
 
-                                        messages[0].setRequest(signedRequest);
+                                        SwingUtilities.invokeLater(() -> messages[0].setRequest(signedRequest));
                                     } catch (IllegalArgumentException | NullPointerException exc) {
-                                        JOptionPane.showMessageDialog(getUiComponent(), formatMessageHtml("Failed to add signature: " + exc.getMessage()));
+                                        showMessageLater(formatMessageHtml("Failed to add signature: " + exc.getMessage()));
                                     }
-                                })).start();
+                                });
                             }
                         });
                         addSignatureMenu.add(sigItem);
                     }
                     list.add(addSignatureMenu);
                 }
+                break;
+        }
+
+        // contexts where several messages can be selected
+        switch (invocation.getInvocationContext()) {
+            case IContextMenuInvocation.CONTEXT_PROXY_HISTORY:
+            case IContextMenuInvocation.CONTEXT_TARGET_SITE_MAP_TABLE:
+            case IContextMenuInvocation.CONTEXT_SEARCH_RESULTS:
+            case IContextMenuInvocation.CONTEXT_INTRUDER_ATTACK_RESULTS:
+            case IContextMenuInvocation.CONTEXT_SCANNER_RESULTS:
+                final IHttpRequestResponse[] selected = invocation.getSelectedMessages();
+                if (selected != null && selected.length > 0) {
+                    list.add(createResignSelectedMenu(selected, profileList));
+                }
+                break;
         }
         return list;
     }
 
+    /*
+    run task on the signing executor. if too many signing tasks are already pending, tell the user instead.
+     */
+    private void executeSigningTask(final Runnable task)
+    {
+        try {
+            signingExecutor.execute(task);
+        } catch (RejectedExecutionException exc) {
+            logger.error("Signing task rejected: %s", exc.getMessage());
+            JOptionPane.showMessageDialog(getUiComponent(), formatMessageHtml("Signing is busy, try again shortly: " + exc.getMessage()));
+        }
+    }
+
+    public SigningExecutor getSigningExecutor() { return signingExecutor; }
+
+    // show a message dialog from any thread
+    public void showMessageLater(final String message)
+    {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(getUiComponent(), message));
+    }
+
+    private JMenu createResignSelectedMenu(final IHttpRequestResponse[] selected, final List<String> profileNames)
+    {
+        JMenu resignMenu = new JMenu(String.format("Re-sign and Send Selected (%d)", selected.length));
+        JMenuItem byKeyItem = new JMenuItem("Profile matching x-ca-key");
+        byKeyItem.addActionListener(actionEvent -> new BatchSigner(this, selected, null).start(getUiComponent()));
+        resignMenu.add(byKeyItem);
+        resignMenu.addSeparator();
+        for (final String name : profileNames) {
+            if (name.length() == 0 || name.equals(NO_DEFAULT_PROFILE)) continue;
+            JMenuItem profileItem = new JMenuItem(name);
+            profileItem.addActionListener(actionEvent -> {
+                final SigProfile profile = profileRegistry.get(name);
+                if (profile == null) {
+                    JOptionPane.showMessageDialog(getUiComponent(), formatMessageHtml("Profile name does not exist: "+name));
+                    return;
+                }
+                new BatchSigner(this, selected, profile).start(getUiComponent());
+            });
+            resignMenu.add(profileItem);
+        }
+        return resignMenu;
+    }
+
 
     // display status message in UI
     private void updateStatus(final String status)
     {
-        logger.debug("Set Status: " + status);
+        logger.debug("Set Status: %s", status);
         this.statusLabel.setText(status);
     }
 
     private List<String> getSortedProfileNames()
     {
         // sort by name in table
-        List<String> profileNames = new ArrayList<>(this.signProfileMap.keySet());
-        Collections.sort(profileNames);
-        return profileNames;
+        return this.profileRegistry.getSortedNames();
     }
 
     /*
@@ -685,7 +888,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         defaultProfileComboBox.addItem(NO_DEFAULT_PROFILE);
 
         for (final String name : getSortedProfileNames()) {
-            SigProfile profile = this.signProfileMap.get(name);
+            SigProfile profile = this.profileRegistry.get(name);
             model.addRow(new Object[]{profile.getName(), profile.getappKeyForProfileSelection(), profile.getappSecretForProfileSelection()});
             defaultProfileComboBox.addItem(name);
         }
@@ -697,27 +900,13 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
     */
     protected void addProfile(final SigProfile profile)
     {
-        final SigProfile p1 = this.signProfileMap.get(profile.getName());
-        if (p1 == null) {
-            // profile name doesn't exist. make sure there is no keyId conflict with an existing profile
-            if (profile.getappKeyForProfileSelection() != null) {
-                String p2 = this.signProfileKeyMap.get(profile.getappKeyForProfileSelection());
-                if (p2 != null) {
-                    // keyId conflict. do not add profile
-                    updateStatus("Profiles must have a unique appKey: "+profile.getName());
-                    throw new IllegalArgumentException(String.format("Profiles must have a unique appKey: %s = %s", profile.getName(), p2));
-                }
-            }
-        }
-
-        this.signProfileMap.put(profile.getName(), profile);
-
-        // refresh the keyId map
-        this.signProfileKeyMap.clear();
-        for (final SigProfile p : this.signProfileMap.values()) {
-            if (p.getappKeyForProfileSelection() != null) {
-                this.signProfileKeyMap.put(p.getappKeyForProfileSelection(), p.getName());
-            }
+        final SigProfile p1;
+        try {
+            p1 = this.profileRegistry.put(profile);
+        } catch (IllegalArgumentException exc) {
+            // keyId conflict. profile was not added
+            updateStatus("Profiles must have a unique appKey: "+profile.getName());
+            throw exc;
         }
 
         updateAwsProfilesUI();
@@ -740,7 +929,7 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         }
 
         // remove any profile with same name
-        final SigProfile p1 = this.signProfileMap.get(oldProfile.getName());
+        final SigProfile p1 = this.profileRegistry.get(oldProfile.getName());
         if (p1 == null) {
             updateStatus("Update profile failed. Old profile doesn't exist.");
             throw new IllegalArgumentException("Update profile failed. Old profile doesn't exist.");
@@ -763,24 +952,24 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
 
     private void deleteProfile(SigProfile profile)
     {
-        if (this.signProfileMap.containsKey(profile.getName())) {
-            this.signProfileMap.remove(profile.getName());
+        if (this.profileRegistry.remove(profile.getName()) != null) {
             updateStatus(String.format("Deleted profile '%s'", profile.getName()));
         }
-        if (profile.getappKeyForProfileSelection() != null) {
-            this.signProfileKeyMap.remove(profile.getappKeyForProfileSelection());
-        }
         updateAwsProfilesUI();
     }
 
-    public boolean isAPIGatewayRequest(final  IHttpRequestResponse messageInfo)
+    public boolean isAPIGatewayRequest(final HttpRequestContext request)
     {
-        if(getHeaderValueOf(true, messageInfo, SIGNATURE_HEADERS) == null) {
-            return false;
-        }
-        else{
-            return true;
-        }
+        return RequestSigner.isSignable(request);
+    }
+
+    /*
+    parse a message once for the whole signing pipeline
+     */
+    public static HttpRequestContext parseRequest(final IHttpRequestResponse messageInfo)
+    {
+        final IHttpService service = messageInfo.getHttpService();
+        return HttpRequestContext.parse(messageInfo.getRequest(), service.getProtocol(), service.getHost(), service.getPort());
     }
 
 
@@ -812,6 +1001,9 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
 
     private List<String> getAdditionalSignedHeadersFromUI()
     {
+        if (additionalSignedHeadersField.getText().trim().isEmpty()) {
+            return List.of();
+        }
         try {
             String[] signHeaders = additionalSignedHeadersField.getText().split(": ")[1].split(",");
             return Arrays.asList(signHeaders);
@@ -827,213 +1019,57 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
 
 
 
-    public SigProfile getSigningProfile(IHttpRequestResponse messageInfo)
+    public SigProfile getSigningProfile(final HttpRequestContext request)
     {
-        String appKey = getHeaderHashMap(true, messageInfo).get(SIGNATURE_KEY);
-        String name = this.signProfileKeyMap.get(appKey);
-        SigProfile signingProfile = this.signProfileMap.get(name);
-        return signingProfile;
-    }
-
-
-    public static Map<String, String> getQueryMap(String query) {
-        String[] params = query.split("&");
-        Map<String, String> map = new HashMap<String, String>();
-
-        for (String param : params) {
-            String name = param.split("=")[0];
-            String value = param.split("=")[1];
-            map.put(name, value);
-        }
-        return map;
+        return this.profileRegistry.getByAppKey(request.getHeaders().get(SIGNATURE_KEY));
     }
 
-    public byte[] getBody(boolean isRequest,byte[] requestOrResponse) {
-        if (requestOrResponse == null){
-            return null;
-        }
-        int bodyOffset = -1;
-        if(isRequest) {
-            IRequestInfo analyzeRequest = helpers.analyzeRequest(requestOrResponse);
-            bodyOffset = analyzeRequest.getBodyOffset();
-        }else {
-            IResponseInfo analyzeResponse = helpers.analyzeResponse(requestOrResponse);
-            bodyOffset = analyzeResponse.getBodyOffset();
-        }
-        byte[] byte_body = Arrays.copyOfRange(requestOrResponse, bodyOffset, requestOrResponse.length);//not length-1
-        //String body = new String(byte_body); //byte[] to String
-        return byte_body;
-    }
-
-    public String getHeaderValueOf(boolean messageIsRequest,IHttpRequestResponse messageInfo, String headerName) {
-        final String Header_Spliter = ": ";
-        List<String> headers=null;
-        if(messageIsRequest) {
-            if (messageInfo.getRequest() == null) {
-                return null;
-            }
-            IRequestInfo analyzeRequest = helpers.analyzeRequest(messageInfo);
-            headers = analyzeRequest.getHeaders();
-        }else {
-            if (messageInfo.getResponse() == null) {
-                return null;
-            }
-            IResponseInfo analyzeResponse = helpers.analyzeResponse(messageInfo.getResponse());
-            headers = analyzeResponse.getHeaders();
-        }
 
-
-        headerName = headerName.toLowerCase().replace(":", "");
-        for (String header : headers) {
-            if (header.toLowerCase().startsWith(headerName)) {
-                return header.split(Header_Spliter, 2)[1];
-            }
-        }
-        return null;
-    }
-
-    public HashMap<String,String> getHeaderHashMap(boolean messageIsRequest,IHttpRequestResponse messageInfo) {
-        final String Header_Spliter = ": ";
-        List<String> headers=null;
-        HashMap<String,String> result = new HashMap<String, String>();
-        //if (headers.size() <=0) return result;
-        if(messageIsRequest) {
-            IRequestInfo analyzeRequest = helpers.analyzeRequest(messageInfo);
-            headers = analyzeRequest.getHeaders();
-        }else {
-            IResponseInfo analyzeResponse = helpers.analyzeResponse(messageInfo.getResponse());
-            headers = analyzeResponse.getHeaders();
-        }
-
-        for (String header : headers) {
-            if(header.contains(Header_Spliter)) {//to void trigger the Exception
-                try {
-                    String headerName = header.split(Header_Spliter, 0)[0];
-                    String headerValue = header.split(Header_Spliter, 0)[1];
-                    //POST /login.pub HTTP/1.1  the first line of header will tirgger error here
-                    result.put(headerName, headerValue);
-                } catch (Exception e) {
-                    //e.printStackTrace();
-                }
-            }
-        }
-
-        return result;
-    }
-
-    public static Map<String, String> splitQuery(URL url) throws UnsupportedEncodingException {
-        Map<String, String> query_pairs = new LinkedHashMap<String, String>();
-        String query = url.getQuery();
-        if (query == null){
-            return null;
-        }
-        String[] pairs = query.split("&");
-        for (String pair : pairs) {
-            int idx = pair.indexOf("=");
-            query_pairs.put(URLDecoder.decode(pair.substring(0, idx), "UTF-8"), URLDecoder.decode(pair.substring(idx + 1), "UTF-8"));
-        }
-        return query_pairs;
-    }
     public byte[] signRequest(IHttpRequestResponse messageInfo, final SigProfile signingProfile) {
-        final String lineOne =  helpers.analyzeRequest(messageInfo).getHeaders().get(0);
-        HashMap<String,String> originalHeader  = getHeaderHashMap(true, messageInfo);
-        URL fullUrl = helpers.analyzeRequest(messageInfo).getUrl();
-        String reqMethod = helpers.analyzeRequest(messageInfo).getMethod();
-        Map<String, String> reqParams = new HashMap<>();
-        try{
-            reqParams = splitQuery(fullUrl);
-        }catch (UnsupportedEncodingException e){
-            logger.error(e.toString());
-            return null;
-        }
-
-        String[] signHeaders = originalHeader.get(SIGNATURE_HEADERS).split(",");
-
-
-        String reqHost = fullUrl.getHost();
-        String reqPath = fullUrl.getPath();
-
-        List<String> finalHeaders = new ArrayList<>();
-
-
-        String appSecret = signingProfile.getappSecret();
-        String appKey = signingProfile.getappKey();
-
-
-        final byte[] body = getBody(true, messageInfo.getRequest());
-
-        logger.debug("\n=======ORIGINAL REQUEST HEADER==========\n"+originalHeader.toString());
-        logger.debug("\n=======ORIGINAL REQUEST url params ==========\n");
-        logger.debug("\n=======ORIGINAL REQUEST host, path ==========\n"+reqHost + "\n" + reqPath+ "\n" +  appSecret);
-
-
-        switch(reqMethod){
-            case "GET":
-                finalHeaders = HttpUtil.httpGet(appKey, appSecret, signHeaders, reqHost, reqPath, reqParams, originalHeader);
-                break;
-            case "POST":
-                for (String k : originalHeader.keySet()) {
-                    if (k.toLowerCase() == "content-type") {
-                        if (originalHeader.get(k).toLowerCase().contains("form")) {
-                            HashMap<String, String> form = null;
-                            finalHeaders = HttpUtil.httpPostForm(appKey, appSecret, signHeaders, reqHost, reqPath, reqParams, form, originalHeader);
-                            break;
-                        }
-
-                    }
-                }
-
-                finalHeaders = HttpUtil.httpPostBytes(appKey, appSecret, signHeaders, reqHost, reqPath, reqParams, body, originalHeader);
-                break;
-            case "PUT":
-                finalHeaders = HttpUtil.httpPutBytes(appKey, appSecret, signHeaders, reqHost, reqPath, reqParams, body, originalHeader);
-
-                break;
-        }
-
-        //logger.debug(String.format("appSecret: %s,",appSecret));
-        if(reqMethod == "GET") {
-        }
-        else {
-            if (reqMethod == "POST") {
-
-            } else {
-            }
-        }
-        logger.debug("\n======= buildHttpRequest ==========\n"+finalHeaders.toString());
-
-
-
-
-
-
-        finalHeaders.add(0, lineOne);
-
-
+        return signRequest(parseRequest(messageInfo), signingProfile);
+    }
 
-        final byte[] requestBytes = helpers.buildHttpMessage(finalHeaders, body);
-        logger.debug("=======FINAL REQUEST============="+helpers.bytesToString(requestBytes));
+    public byte[] signRequest(final HttpRequestContext request, final SigProfile signingProfile) {
+        final byte[] requestBytes = request.buildMessage(signHeaders(request, signingProfile).getHeaders());
+        logger.debug(() -> "=======FINAL REQUEST============="+helpers.bytesToString(requestBytes));
         logger.debug("=======END REQUEST=============");
         return requestBytes;
     }
 
-    private boolean isSigningEnabledForTool(final int toolFlag)
+    private SignResult signHeaders(final HttpRequestContext request, final SigProfile signingProfile) {
+        // signing sets the generated headers in place. every other header keeps its position, repeats included.
+        final HeaderList headers = new HeaderList(request.getHeaders());
+        final RequestSigner signer = new RequestSigner(signingProfile.getappKey(), signingProfile.getappSecret(),
+                this.settingsSnapshot.preserveHeaderOrder());
+
+        logger.debug(() -> "\n=======ORIGINAL REQUEST HEADER==========\n"+headers.toString());
+        logger.debug("\n=======ORIGINAL REQUEST url params ==========\n%s", request.getQueryParams());
+        logger.debug("\n=======ORIGINAL REQUEST host, path ==========\n%s\n%s", request.getHost(), request.getPath());
+
+        // every method is signed. the body is signed as form parameters, by Content-MD5 or not at all, depending on
+        // the method and Content-Type.
+        final SignResult signed = signer.sign(request, headers);
+        logger.debug(() -> "\n======= buildHttpRequest ==========\n"+signed.toString());
+        return signed;
+    }
+
+    private static boolean isSigningEnabledForTool(final ExtensionSettings settings, final int toolFlag)
     {
         switch (toolFlag) {
             case IBurpExtenderCallbacks.TOOL_PROXY:
-                return advancedSettingsDialog.signingEnabledForProxyCheckbox.isSelected();
+                return settings.signingEnabledForProxy();
             case IBurpExtenderCallbacks.TOOL_SPIDER:
-                return advancedSettingsDialog.signingEnabledForSpiderCheckBox.isSelected();
+                return settings.signingEnabledForSpider();
             case IBurpExtenderCallbacks.TOOL_SCANNER:
-                return advancedSettingsDialog.signingEnabledForScannerCheckBox.isSelected();
+                return settings.signingEnabledForScanner();
             case IBurpExtenderCallbacks.TOOL_INTRUDER:
-                return advancedSettingsDialog.signingEnabledForIntruderCheckBox.isSelected();
+                return settings.signingEnabledForIntruder();
             case IBurpExtenderCallbacks.TOOL_REPEATER:
-                return advancedSettingsDialog.signingEnabledForRepeaterCheckBox.isSelected();
+                return settings.signingEnabledForRepeater();
             case IBurpExtenderCallbacks.TOOL_SEQUENCER:
-                return advancedSettingsDialog.signingEnabledForSequencerCheckBox.isSelected();
+                return settings.signingEnabledForSequencer();
             case IBurpExtenderCallbacks.TOOL_EXTENDER:
-                return advancedSettingsDialog.signingEnabledForExtenderCheckBox.isSelected();
+                return settings.signingEnabledForExtender();
             default:
                 return false;
         }
@@ -1042,31 +1078,43 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
     @Override
     public void processHttpMessage(int toolFlag, boolean messageIsRequest, IHttpRequestResponse messageInfo)
     {
-        IRequestInfo request = null;
         if (!messageIsRequest){
             return;
         }
 
-        if (signingEnabledCheckBox.isSelected() && isSigningEnabledForTool(toolFlag)) {
-            if (request == null) {
-                request = helpers.analyzeRequest(messageInfo);
+        // read the snapshot once so all checks below see the same settings
+        final ExtensionSettings settings = this.settingsSnapshot;
+        if (settings.extensionEnabled() && isSigningEnabledForTool(settings, toolFlag)) {
+            final HttpRequestContext request;
+            try {
+                request = parseRequest(messageInfo);
+            } catch (IllegalArgumentException exc) {
+                logger.error("Failed to parse request: " + exc.getMessage());
+                return;
+            }
+
+            // signed by a session handling rule just before this. signing again would only change the nonce.
+            final String signature = request.getHeaders().get(SystemHeader.CLOUDAPI_X_CA_SIGNATURE);
+            if (signature != null && sessionSignatures.remove(signature)) {
+                logger.debug("Skipping request signed by session handling rule: %s", request.getUrl());
+                return;
             }
 
             // check request scope
-            if (this.inScopeOnlyCheckBox.isSelected() && !this.callbacks.isInScope(request.getUrl())) {
-                logger.debug("Skipping out of scope request: " + request.getUrl());
+            if (settings.inScopeOnly() && !this.callbacks.isInScope(request.getUrl())) {
+                logger.debug("Skipping out of scope request: %s", request.getUrl());
                 return;
             }
 
-            if (isAPIGatewayRequest(messageInfo)) {
-                final SigProfile signingProfile = getSigningProfile(messageInfo);
+            if (isAPIGatewayRequest(request)) {
+                final SigProfile signingProfile = getSigningProfile(request);
 
                 if (signingProfile == null) {
                     logger.error("Failed to get signing profile");
                     return;
                 }
 
-                final byte[] requestBytes = signRequest(messageInfo,  signingProfile);
+                final byte[] requestBytes = signRequest(request,  signingProfile);
                 if (requestBytes != null) {
                     messageInfo.setRequest(requestBytes);
                     messageInfo.setComment(DISPLAY_NAME+" "+signingProfile.getName());
@@ -1078,5 +1126,45 @@ public class BurpExtender implements IBurpExtender, IHttpListener, ITab, IExtens
         }
     }
 
-}
+    @Override
+    public String getActionName()
+    {
+        return DISPLAY_NAME;
+    }
+
+    /*
+    Session handling rule action. Burp runs it on the request it is about to send, after Intruder and Scanner have
+    placed their payloads, so the rule's tool and URL scope decide what is signed rather than the tool checkboxes.
+    Signed requests are remembered so processHttpMessage does not sign them a second time.
+     */
+    @Override
+    public void performAction(IHttpRequestResponse currentRequest, IHttpRequestResponse[] macroItems)
+    {
+        if (!this.settingsSnapshot.extensionEnabled()) {
+            return;
+        }
+        final HttpRequestContext request;
+        try {
+            request = parseRequest(currentRequest);
+        } catch (IllegalArgumentException exc) {
+            logger.error("Failed to parse request: " + exc.getMessage());
+            return;
+        }
+        if (!isAPIGatewayRequest(request)) {
+            return;
+        }
+        final SigProfile signingProfile = getSigningProfile(request);
+        if (signingProfile == null) {
+            logger.error("Failed to get signing profile");
+            return;
+        }
 
+        final SignResult signed = signHeaders(request, signingProfile);
+        if (sessionSignatures.size() >= MAX_SESSION_SIGNATURES) {
+            // requests Burp dropped after the rule ran are never seen by the listener
+            sessionSignatures.clear();
+        }
+        sessionSignatures.add(signed.getSignature());
+        currentRequest.setRequest(request.buildMessage(signed.getHeaders()));
+    }
+}
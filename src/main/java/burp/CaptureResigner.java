@@ -0,0 +1,537 @@
+package burp;
+
+import com.alibaba.cloudapi.client.HeaderList;
+import com.alibaba.cloudapi.client.HttpRequestContext;
+import com.alibaba.cloudapi.client.HttpUtil;
+import com.alibaba.cloudapi.client.NonceGenerator;
+import com.alibaba.cloudapi.client.RequestSigner;
+import com.alibaba.cloudapi.client.SignResult;
+import com.alibaba.cloudapi.client.constant.SystemHeader;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Re-signs captured requests offline, eg before a regression replay run, with the profile whose appKey matches each
+request's x-ca-key. Two input formats are read as streams:
+
+ - HAR: the entries of log.entries are re-signed and everything else is copied as it is. Only the request headers of
+   an entry change.
+ - NDJSON: one JSON object per line with the raw request in "request" (one char per byte) or "requestBase64", and
+   optionally "protocol", "host" and "port" of the service. The other fields are kept. Lines that are not objects are
+   copied as they are.
+
+Entries are signed on a fork/join pool and written in their original order as soon as the ones before them are
+done. At most a few entries per thread are held in memory, so the size of a capture does not matter. Requests
+without x-ca-signature-headers, or without a matching profile, are written unchanged.
+
+    java -cp <extension jar> burp.CaptureResigner --credentials <file> --in <capture> --out <file> [options]
+ */
+public class CaptureResigner
+{
+    public enum Format { HAR, NDJSON }
+
+    private static final int ENTRIES_PER_THREAD = 4; // in flight, to keep every thread busy while output is ordered
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final String DEFAULT_PROTOCOL = "https";
+
+    private static final LogWriter logger = LogWriter.getLogger();
+    private static final Gson gson = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+    private final SigProfileRegistry profiles;
+    private final SigProfile defaultProfile; // null to leave requests without a matching profile unchanged
+    private final boolean preserveHeaderOrder;
+    private final int parallelism;
+
+    private final AtomicLong entryCount = new AtomicLong();
+    private final AtomicLong signedCount = new AtomicLong();
+    private final AtomicLong noProfileCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public CaptureResigner(final SigProfileRegistry profiles, final SigProfile defaultProfile,
+                           final boolean preserveHeaderOrder, final int parallelism)
+    {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.profiles = profiles;
+        this.defaultProfile = defaultProfile;
+        this.preserveHeaderOrder = preserveHeaderOrder;
+        this.parallelism = parallelism;
+    }
+
+    public long getEntryCount() { return entryCount.get(); }
+    public long getSignedCount() { return signedCount.get(); }
+    public long getNoProfileCount() { return noProfileCount.get(); }
+    public long getFailedCount() { return failedCount.get(); }
+
+    /*
+    .har files are HAR, anything else NDJSON
+     */
+    public static Format formatOf(final String fileName)
+    {
+        return fileName.toLowerCase().endsWith(".har") ? Format.HAR : Format.NDJSON;
+    }
+
+    /*
+    re-sign every entry of in and write the result to out. neither stream is closed.
+     */
+    public void resign(final InputStream in, final OutputStream out, final Format format) throws IOException
+    {
+        final Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            if (format == Format.HAR) {
+                resignHar(new JsonReader(reader), new JsonWriter(writer), pool);
+            }
+            else {
+                resignLines((BufferedReader) reader, writer, pool);
+            }
+            writer.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+    Runs transform on each input on the pool and hands the results to the sink in input order. Each input is passed
+    with its position in the input, counting from 0, for error messages. Once the window is full, the oldest result
+    is waited for before more input is read.
+     */
+    private final class OrderedPipeline<T>
+    {
+        private final ForkJoinPool pool;
+        private final IndexedTransform<T> transform;
+        private final IOConsumer<T> sink;
+        private final ArrayDeque<ForkJoinTask<T>> window = new ArrayDeque<>();
+        private final int maxInFlight = parallelism * ENTRIES_PER_THREAD;
+        private long nextIndex = 0;
+
+        OrderedPipeline(ForkJoinPool pool, IndexedTransform<T> transform, IOConsumer<T> sink)
+        {
+            this.pool = pool;
+            this.transform = transform;
+            this.sink = sink;
+        }
+
+        void submit(final T input) throws IOException
+        {
+            final long index = nextIndex++;
+            entryCount.incrementAndGet();
+            window.add(pool.submit(() -> transform.apply(index, input)));
+            while (window.size() >= maxInFlight || (!window.isEmpty() && window.peek().isDone())) {
+                sink.accept(window.poll().join());
+            }
+        }
+
+        void finish() throws IOException
+        {
+            while (!window.isEmpty()) {
+                sink.accept(window.poll().join());
+            }
+        }
+    }
+
+    private interface IndexedTransform<T>
+    {
+        T apply(long index, T input);
+    }
+
+    private interface IOConsumer<T>
+    {
+        void accept(T value) throws IOException;
+    }
+
+    private void resignLines(final BufferedReader reader, final Writer writer, final ForkJoinPool pool) throws IOException
+    {
+        OrderedPipeline<String> pipeline = new OrderedPipeline<>(pool, this::resignLine, line -> {
+            writer.write(line);
+            writer.write('\n');
+        });
+        String line;
+        while ((line = reader.readLine()) != null) {
+            pipeline.submit(line);
+        }
+        pipeline.finish();
+    }
+
+    private void resignHar(final JsonReader reader, final JsonWriter writer, final ForkJoinPool pool) throws IOException
+    {
+        // copy the document, stopping at log.entries
+        reader.beginObject();
+        writer.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            writer.name(name);
+            if (!name.equals("log") || reader.peek() != JsonToken.BEGIN_OBJECT) {
+                copy(reader, writer);
+                continue;
+            }
+            reader.beginObject();
+            writer.beginObject();
+            while (reader.hasNext()) {
+                final String logName = reader.nextName();
+                writer.name(logName);
+                if (!logName.equals("entries") || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    copy(reader, writer);
+                    continue;
+                }
+                OrderedPipeline<JsonElement> pipeline = new OrderedPipeline<>(pool, this::resignHarEntry,
+                        entry -> gson.toJson(entry, writer));
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    pipeline.submit(JsonParser.parseReader(reader));
+                }
+                pipeline.finish();
+                reader.endArray();
+                writer.endArray();
+            }
+            reader.endObject();
+            writer.endObject();
+        }
+        reader.endObject();
+        writer.endObject();
+    }
+
+    private static void copy(final JsonReader reader, final JsonWriter writer) throws IOException
+    {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+                break;
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+                break;
+            case STRING:
+                writer.value(reader.nextString());
+                break;
+            case NUMBER:
+                writer.jsonValue(reader.nextString());
+                break;
+            case BOOLEAN:
+                writer.value(reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                writer.nullValue();
+                break;
+            default:
+                throw new IOException("unexpected " + reader.peek() + " at " + reader.getPath());
+        }
+    }
+
+    /*
+    profile for the request's x-ca-key, the default profile or null. counts requests left without a profile.
+     */
+    private SigProfile profileFor(final HeaderList headers)
+    {
+        SigProfile profile = profiles.getByAppKey(headers.get(SystemHeader.CLOUDAPI_X_CA_KEY));
+        if (profile == null) {
+            profile = defaultProfile;
+        }
+        if (profile == null) {
+            noProfileCount.incrementAndGet();
+        }
+        return profile;
+    }
+
+    private RequestSigner signerFor(final SigProfile profile)
+    {
+        return new RequestSigner(profile.getappKey(), profile.getappSecret(), preserveHeaderOrder);
+    }
+
+    private String resignLine(final long index, final String line)
+    {
+        if (!line.trim().startsWith("{")) {
+            return line;
+        }
+        try {
+            final JsonObject entry = JsonParser.parseString(line).getAsJsonObject();
+            final boolean base64 = !entry.has("request") && entry.has("requestBase64");
+            final String field = base64 ? "requestBase64" : "request";
+            if (!entry.has(field)) {
+                return line;
+            }
+            final byte[] message = base64 ? Base64.getDecoder().decode(entry.get(field).getAsString())
+                    : entry.get(field).getAsString().getBytes(StandardCharsets.ISO_8859_1);
+
+            // the service is given by the entry's fields, or else by the Host header
+            final String protocol = entry.has("protocol") ? entry.get("protocol").getAsString() : DEFAULT_PROTOCOL;
+            final int entryPort = entry.has("port") ? entry.get("port").getAsInt() : -1;
+            HttpRequestContext request = HttpRequestContext.parse(message, protocol,
+                    entry.has("host") ? entry.get("host").getAsString() : "localhost", entryPort);
+            final String hostHeader = request.getHeaders().get("Host");
+            if (!entry.has("host") && hostHeader != null && !hostHeader.isEmpty()) {
+                final int portStart = portSeparator(hostHeader);
+                request = request.withService(protocol, (portStart < 0) ? hostHeader : hostHeader.substring(0, portStart),
+                        (entryPort >= 0 || portStart < 0) ? entryPort : Integer.parseInt(hostHeader.substring(portStart + 1)));
+            }
+            if (!RequestSigner.isSignable(request)) {
+                return line;
+            }
+            final SigProfile profile = profileFor(request.getHeaders());
+            if (profile == null) {
+                return line;
+            }
+            final byte[] signed = signerFor(profile).sign(request);
+            entry.addProperty(field, base64 ? Base64.getEncoder().encodeToString(signed)
+                    : new String(signed, StandardCharsets.ISO_8859_1));
+            signedCount.incrementAndGet();
+            return gson.toJson(entry);
+        } catch (RuntimeException exc) {
+            failedCount.incrementAndGet();
+            logger.error("Line %d not re-signed: %s", index + 1, exc);
+            return line;
+        }
+    }
+
+    private JsonElement resignHarEntry(final long index, final JsonElement element)
+    {
+        try {
+            final JsonObject request = element.getAsJsonObject().getAsJsonObject("request");
+            if (request == null) {
+                return element;
+            }
+            final JsonArray harHeaders = request.has("headers") ? request.getAsJsonArray("headers") : new JsonArray();
+            HeaderList headers = new HeaderList(harHeaders.size());
+            for (JsonElement header : harHeaders) {
+                final JsonObject pair = header.getAsJsonObject();
+                headers.add(pair.get("name").getAsString(), pair.get("value").getAsString());
+            }
+            if (headers.get(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS) == null) {
+                return element;
+            }
+            final SigProfile profile = profileFor(headers);
+            if (profile == null) {
+                return element;
+            }
+
+            // only the method, target and body of the message are read; the headers to sign are passed separately
+            final String url = request.get("url").getAsString();
+            final int schemeEnd = url.indexOf("://");
+            final int authorityStart = (schemeEnd < 0) ? 0 : schemeEnd + 3;
+            int pathStart = url.indexOf('/', authorityStart);
+            if (pathStart < 0) {
+                pathStart = url.length();
+            }
+            int targetEnd = url.indexOf('#', pathStart);
+            if (targetEnd < 0) {
+                targetEnd = url.length();
+            }
+            final String target = (pathStart == targetEnd) ? "/" : url.substring(pathStart, targetEnd);
+            final String authority = url.substring(authorityStart, pathStart);
+            final int portStart = portSeparator(authority);
+            final String protocol = (schemeEnd < 0) ? DEFAULT_PROTOCOL : url.substring(0, schemeEnd);
+            final String host = (portStart < 0) ? authority : authority.substring(0, portStart);
+            final int port = (portStart < 0) ? -1 : Integer.parseInt(authority.substring(portStart + 1));
+
+            final byte[] head = (request.get("method").getAsString() + " " + target + " HTTP/1.1\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            final byte[] body = harBody(request.getAsJsonObject("postData"));
+            final byte[] message = Arrays.copyOf(head, head.length + body.length);
+            System.arraycopy(body, 0, message, head.length, body.length);
+
+            final SignResult result = signerFor(profile).sign(HttpRequestContext.parse(message, protocol, host, port), headers);
+            JsonArray signedHeaders = new JsonArray(result.getHeaders().size());
+            for (int i = 0; i < result.getHeaders().size(); i++) {
+                JsonObject pair = new JsonObject();
+                pair.addProperty("name", result.getHeaders().getName(i));
+                pair.addProperty("value", result.getHeaders().getValue(i));
+                signedHeaders.add(pair);
+            }
+            request.add("headers", signedHeaders);
+            if (request.has("headersSize")) {
+                request.addProperty("headersSize", -1); // no longer known
+            }
+            signedCount.incrementAndGet();
+            return element;
+        } catch (RuntimeException exc) {
+            failedCount.incrementAndGet();
+            logger.error("log.entries[%d] not re-signed: %s", index, exc);
+            return element;
+        }
+    }
+
+    /*
+    index of the ':' before the port in a host[:port] authority, or -1 if there is no port. an IPv6 literal is in
+    brackets and keeps them in the host.
+     */
+    private static int portSeparator(final String authority)
+    {
+        final int colon = authority.lastIndexOf(':');
+        return (colon > authority.lastIndexOf(']')) ? colon : -1;
+    }
+
+    /*
+    request body bytes of a HAR postData object: text as UTF-8, or decoded when marked as base64
+     */
+    private static byte[] harBody(final JsonObject postData)
+    {
+        if (postData == null || !postData.has("text") || postData.get("text").isJsonNull()) {
+            return new byte[0];
+        }
+        final String text = postData.get("text").getAsString();
+        if (postData.has("encoding") && "base64".equalsIgnoreCase(postData.get("encoding").getAsString())) {
+            return Base64.getDecoder().decode(text);
+        }
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void usage(final String error)
+    {
+        if (error != null) {
+            System.err.println(error);
+        }
+        System.err.println("usage: java -cp <extension jar> burp.CaptureResigner --credentials <file> --in <file> --out <file> [options]\n"
+                + "  --in file          HAR or NDJSON capture, - for standard input\n"
+                + "  --out file         where to write the re-signed capture, - for standard output\n"
+                + "  --format format    har or ndjson (default: har for .har files, otherwise ndjson)\n"
+                + "  --profile name     profile for requests whose x-ca-key matches no profile\n"
+                + "  --threads n        signing threads (default: CPU count)\n"
+                + "  --nonce mode       secure (default), or sequential[:seed] to repeat the same nonces on every run\n"
+                + "  --nonce-check n    never reuse a nonce within the last n issued\n"
+                + "  --sort-headers     sort headers by name when signing instead of keeping their order\n"
+                + "  --log-level level  debug, info or error (default info)");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        Path credentialPath = null;
+        String in = null;
+        String out = null;
+        Format format = null;
+        String profileName = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean preserveHeaderOrder = true;
+        String nonceMode = NonceGenerator.MODE_SECURE;
+        int nonceReplayWindow = 0;
+        int logLevel = LogWriter.INFO_LEVEL;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--credentials":
+                        credentialPath = Paths.get(args[++i]);
+                        break;
+                    case "--in":
+                        in = args[++i];
+                        break;
+                    case "--out":
+                        out = args[++i];
+                        break;
+                    case "--format":
+                        format = Format.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--profile":
+                        profileName = args[++i];
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--sort-headers":
+                        preserveHeaderOrder = false;
+                        break;
+                    case "--nonce":
+                        nonceMode = args[++i];
+                        break;
+                    case "--nonce-check":
+                        nonceReplayWindow = Integer.parseInt(args[++i]);
+                        break;
+                    case "--log-level":
+                        logLevel = Arrays.asList("debug", "info", "error").indexOf(args[++i]);
+                        if (logLevel < 0) {
+                            usage("unknown log level: " + args[i]);
+                        }
+                        break;
+                    default:
+                        usage("unknown option: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException exc) {
+            usage("missing value for " + args[args.length - 1]);
+        } catch (IllegalArgumentException exc) {
+            usage(exc.getMessage());
+        }
+        try {
+            HttpUtil.setNonceGenerator(NonceGenerator.parse(nonceMode, nonceReplayWindow));
+        } catch (IllegalArgumentException exc) {
+            usage(exc.getMessage());
+        }
+        if (credentialPath == null || in == null || out == null) {
+            usage("--credentials, --in and --out are required");
+        }
+        if (!Files.exists(credentialPath)) {
+            usage("credential file does not exist: " + credentialPath);
+        }
+        if (format == null) {
+            format = formatOf(in);
+        }
+
+        // log to stderr so the output can go to stdout
+        logger.configure(System.err, System.err, logLevel);
+        final SigProfileRegistry profiles = SigProfileRegistry.fromCredentialPath(credentialPath);
+        SigProfile defaultProfile = null;
+        if (profileName != null) {
+            defaultProfile = profiles.get(profileName);
+            if (defaultProfile == null) {
+                usage("profile not found in " + credentialPath + ": " + profileName);
+            }
+        }
+
+        final CaptureResigner resigner = new CaptureResigner(profiles, defaultProfile, preserveHeaderOrder, threads);
+        final long startNanos = System.nanoTime();
+        try (InputStream input = in.equals("-") ? System.in : Files.newInputStream(Paths.get(in));
+             OutputStream output = out.equals("-") ? System.out : Files.newOutputStream(Paths.get(out))) {
+            resigner.resign(input, output, format);
+        }
+        logger.info("%d entries in %d ms: %d signed, %d without a profile, %d failed", resigner.getEntryCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), resigner.getSignedCount(),
+                resigner.getNoProfileCount(), resigner.getFailedCount());
+        if (resigner.getFailedCount() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package burp;
 
+import com.alibaba.cloudapi.client.NonceGenerator;
 import com.google.gson.annotations.Since;
 import lombok.*;
 import lombok.experimental.Accessors;
@@ -18,7 +19,7 @@ public class ExtensionSettings {
     // use this field to track settings version. when adding a new setting, bump this value
     // and annotate the new setting with @Since(x.y). when the extension loads an
     // old settings file, it will just use the defaults for new settings.
-    private static final double SETTINGS_VERSION = 0.0;
+    private static final double SETTINGS_VERSION = 0.1;
 
 
     public static final long PRESIGNED_URL_LIFETIME_MIN_SECONDS = 1;
@@ -30,6 +31,9 @@ public class ExtensionSettings {
     public static final String CONTENT_MD5_IGNORE = "ignore"; // do nothing
     public static final String CONTENT_MD5_DEFAULT = CONTENT_MD5_IGNORE;
 
+    public static final String NONCE_MODE_DEFAULT = NonceGenerator.MODE_SECURE;
+    public static final int NONCE_REPLAY_WINDOW = 65536; // recent nonces checked for repeats, when enabled
+
     @Setter(AccessLevel.NONE)
     double settingsVersion = SETTINGS_VERSION;
 
@@ -85,6 +89,24 @@ public class ExtensionSettings {
     @With
     String contentMD5HeaderBehavior = CONTENT_MD5_IGNORE;
 
+    @Since(0.1)
+    @Builder.Default
+    boolean contentMd5Cache = false;
+
+    @Since(0.1)
+    @Builder.Default
+    @NonFinal
+    @With
+    String nonceMode = NONCE_MODE_DEFAULT;
+
+    @Since(0.1)
+    @Builder.Default
+    long nonceSeed = 0;
+
+    @Since(0.1)
+    @Builder.Default
+    boolean nonceReplayCheck = false;
+
     @Since(0)
     @Builder.Default
     Map<String, SigProfile> profiles = Map.of();
@@ -2,6 +2,10 @@ package burp;
 
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 public class LogWriter
 {
@@ -11,9 +15,16 @@ public class LogWriter
     final public static int DEFAULT_LEVEL = ERROR_LEVEL;
     final public static int FATAL_LEVEL = 3;
 
+    final public static int DEFAULT_ASYNC_CAPACITY = 4096;
+    private static final long DRAIN_IDLE_NANOS = 5_000_000; // 5ms
+
     private PrintWriter out;
     private PrintWriter err;
-    private int logLevel;
+    private volatile int logLevel;
+
+    // when non-null, messages are queued here and printed by drainThread
+    private volatile RingBuffer ringBuffer;
+    private Thread drainThread;
 
     private static LogWriter logWriter;
 
@@ -22,7 +33,7 @@ public class LogWriter
         this.logLevel = DEFAULT_LEVEL;
     }
 
-    public static LogWriter getLogger()
+    public static synchronized LogWriter getLogger()
     {
         if (logWriter == null)
             logWriter = new LogWriter();
@@ -51,6 +62,42 @@ public class LogWriter
         this.logLevel = logLevel;
     }
 
+    /*
+    Queue messages in a bounded ring buffer and print them from a background thread, so logging never blocks the
+    caller. If the buffer is full, messages are dropped and the number of dropped messages is reported later.
+     */
+    public synchronized void startAsync(final int capacity)
+    {
+        if (this.ringBuffer != null) {
+            return;
+        }
+        final RingBuffer buffer = new RingBuffer(capacity);
+        this.ringBuffer = buffer;
+        this.drainThread = new Thread(() -> drain(buffer), "LogWriter");
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+    }
+
+    /*
+    print any queued messages and return to synchronous logging
+     */
+    public synchronized void stopAsync()
+    {
+        final RingBuffer buffer = this.ringBuffer;
+        if (buffer == null) {
+            return;
+        }
+        this.ringBuffer = null;
+        buffer.stopped = true;
+        LockSupport.unpark(this.drainThread);
+        try {
+            this.drainThread.join(1000);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+        this.drainThread = null;
+    }
+
     public void setLevel(int level)
     {
         if (level >= DEBUG_LEVEL && level <= FATAL_LEVEL)
@@ -59,35 +106,196 @@ public class LogWriter
 
     public int getLevel() { return this.logLevel; }
 
+    public boolean isEnabled(final int level) { return this.logLevel <= level; }
+    public boolean isDebugEnabled() { return isEnabled(DEBUG_LEVEL); }
+
     private void log(final String message, int level)
     {
-        if (this.logLevel <= level) {
-            if (level >= ERROR_LEVEL) {
-                this.err.println(message);
-            }
-            else {
-                this.out.println(message);
+        final RingBuffer buffer = this.ringBuffer;
+        if (buffer == null) {
+            print(message, level);
+        }
+        else {
+            buffer.offer(message, level);
+        }
+    }
+
+    private void print(final String message, int level)
+    {
+        if (level >= ERROR_LEVEL) {
+            this.err.println(message);
+        }
+        else {
+            this.out.println(message);
+        }
+    }
+
+    private void drain(final RingBuffer buffer)
+    {
+        long reportedDropped = 0;
+        while (true) {
+            final boolean stopped = buffer.stopped;
+            if (!buffer.poll(this::print)) {
+                final long dropped = buffer.dropped.get();
+                if (dropped != reportedDropped) {
+                    print(String.format("[ERROR] Log buffer full. Dropped %d message(s)", dropped - reportedDropped), ERROR_LEVEL);
+                    reportedDropped = dropped;
+                }
+                if (stopped) {
+                    return;
+                }
+                LockSupport.parkNanos(DRAIN_IDLE_NANOS);
             }
         }
     }
 
+    private void log(final String prefix, final String message, int level)
+    {
+        if (isEnabled(level)) {
+            log(prefix + message, level);
+        }
+    }
+
+    private void log(final String prefix, final Supplier<String> message, int level)
+    {
+        if (isEnabled(level)) {
+            log(prefix + message.get(), level);
+        }
+    }
+
+    private void log(final String prefix, final String format, final Object[] args, int level)
+    {
+        if (isEnabled(level)) {
+            log(prefix + String.format(format, args), level);
+        }
+    }
+
     public void debug(final String message)
     {
-        log("[DEBUG] " + message, DEBUG_LEVEL);
+        log("[DEBUG] ", message, DEBUG_LEVEL);
+    }
+
+    public void debug(final Supplier<String> message)
+    {
+        log("[DEBUG] ", message, DEBUG_LEVEL);
+    }
+
+    public void debug(final String format, final Object... args)
+    {
+        log("[DEBUG] ", format, args, DEBUG_LEVEL);
     }
 
     public void info(final String message)
     {
-        log("[INFO] " + message, INFO_LEVEL);
+        log("[INFO] ", message, INFO_LEVEL);
+    }
+
+    public void info(final Supplier<String> message)
+    {
+        log("[INFO] ", message, INFO_LEVEL);
+    }
+
+    public void info(final String format, final Object... args)
+    {
+        log("[INFO] ", format, args, INFO_LEVEL);
     }
 
     public void error(final String message)
     {
-        log("[ERROR] " + message, ERROR_LEVEL);
+        log("[ERROR] ", message, ERROR_LEVEL);
+    }
+
+    public void error(final Supplier<String> message)
+    {
+        log("[ERROR] ", message, ERROR_LEVEL);
+    }
+
+    public void error(final String format, final Object... args)
+    {
+        log("[ERROR] ", format, args, ERROR_LEVEL);
     }
 
     public void fatal(final String message)
     {
-        log("[FATAL] " + message, FATAL_LEVEL);
+        log("[FATAL] ", message, FATAL_LEVEL);
+    }
+
+    private interface MessageConsumer
+    {
+        void accept(String message, int level);
+    }
+
+    /*
+    Bounded multi-producer, single-consumer queue. Slots are claimed with a CAS on tail and handed to the
+    consumer through a per-slot sequence number, so producers never lock and never allocate.
+     */
+    private static final class RingBuffer
+    {
+        private final int mask;
+        private final AtomicLongArray sequences;
+        private final String[] messages;
+        private final int[] levels;
+        private final AtomicLong tail = new AtomicLong();
+        private long head = 0; // consumer thread only
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean stopped = false;
+
+        RingBuffer(final int requestedCapacity)
+        {
+            int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+            this.mask = capacity - 1;
+            this.sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+            this.messages = new String[capacity];
+            this.levels = new int[capacity];
+        }
+
+        /*
+        queue a message, or count it as dropped if the buffer is full
+         */
+        void offer(final String message, final int level)
+        {
+            long position = tail.get();
+            while (true) {
+                final int index = (int) (position & mask);
+                final long diff = sequences.get(index) - position;
+                if (diff == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        messages[index] = message;
+                        levels[index] = level;
+                        sequences.set(index, position + 1);
+                        return;
+                    }
+                    position = tail.get();
+                }
+                else if (diff < 0) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        /*
+        hand one message to the consumer. returns false if the buffer is empty.
+         */
+        boolean poll(final MessageConsumer consumer)
+        {
+            final int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                return false;
+            }
+            final String message = messages[index];
+            final int level = levels[index];
+            messages[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+            consumer.accept(message, level);
+            return true;
+        }
     }
 }
@@ -0,0 +1,138 @@
+package burp;
+
+import com.alibaba.cloudapi.client.SignUtil;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+Profiles indexed by name and by appKey. Readers, such as signing threads looking up the profile for an x-ca-key,
+take no locks: every change publishes a new immutable index through a volatile field. Changes are serialized but
+are expected to be rare (UI actions and settings import).
+ */
+public class SigProfileRegistry
+{
+    private static final class Index
+    {
+        final Map<String, SigProfile> byName;
+        final Map<String, SigProfile> byAppKey;
+
+        Index(Map<String, SigProfile> byName, Map<String, SigProfile> byAppKey)
+        {
+            this.byName = Collections.unmodifiableMap(byName);
+            this.byAppKey = Collections.unmodifiableMap(byAppKey);
+        }
+    }
+
+    private volatile Index index = new Index(new HashMap<>(), new HashMap<>());
+
+    /*
+    registry of the profiles in an alibaba API gateway credential file, for use outside the UI. profiles whose appKey
+    is already taken by an earlier profile are logged and skipped.
+     */
+    public static SigProfileRegistry fromCredentialPath(final Path path)
+    {
+        SigProfileRegistry registry = new SigProfileRegistry();
+        for (SigProfile profile : SigProfile.fromCredentialPath(path)) {
+            try {
+                registry.put(profile);
+            } catch (IllegalArgumentException exc) {
+                LogWriter.getLogger().error("Skipping profile from %s: %s", path, exc.getMessage());
+            }
+        }
+        return registry;
+    }
+
+    public SigProfile get(final String name)
+    {
+        if (name == null) {
+            return null;
+        }
+        return index.byName.get(name);
+    }
+
+    public SigProfile getByAppKey(final String appKey)
+    {
+        if (appKey == null) {
+            return null;
+        }
+        return index.byAppKey.get(appKey);
+    }
+
+    public int size() { return index.byName.size(); }
+
+    /*
+    unmodifiable map of profile name to profile
+     */
+    public Map<String, SigProfile> getProfileMap() { return index.byName; }
+
+    public List<String> getSortedNames()
+    {
+        List<String> names = new ArrayList<>(index.byName.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /*
+    Add a profile, or replace an existing profile with the same name. Returns the replaced profile, if any.
+    Throws IllegalArgumentException if a different profile already uses the same appKey.
+     */
+    public synchronized SigProfile put(final SigProfile profile)
+    {
+        final Index current = index;
+        final String appKey = profile.getappKeyForProfileSelection();
+        if (appKey != null) {
+            final SigProfile p2 = current.byAppKey.get(appKey);
+            if (p2 != null && !p2.getName().equals(profile.getName())) {
+                throw new IllegalArgumentException(String.format("Profiles must have a unique appKey: %s = %s", profile.getName(), p2.getName()));
+            }
+        }
+
+        Map<String, SigProfile> byName = new HashMap<>(current.byName);
+        Map<String, SigProfile> byAppKey = new HashMap<>(current.byAppKey);
+        final SigProfile replaced = byName.put(profile.getName(), profile);
+        if (replaced != null) {
+            removeAppKey(byAppKey, replaced);
+        }
+        if (appKey != null) {
+            byAppKey.put(appKey, profile);
+        }
+        index = new Index(byName, byAppKey);
+
+        if (replaced != null) {
+            // replaced profile may have had a different secret
+            SignUtil.invalidateMacCache();
+        }
+        return replaced;
+    }
+
+    /*
+    Remove the named profile. Returns the removed profile or null if it did not exist.
+     */
+    public synchronized SigProfile remove(final String name)
+    {
+        final Index current = index;
+        if (name == null || !current.byName.containsKey(name)) {
+            return null;
+        }
+        Map<String, SigProfile> byName = new HashMap<>(current.byName);
+        Map<String, SigProfile> byAppKey = new HashMap<>(current.byAppKey);
+        final SigProfile removed = byName.remove(name);
+        removeAppKey(byAppKey, removed);
+        index = new Index(byName, byAppKey);
+        SignUtil.invalidateMacCache();
+        return removed;
+    }
+
+    private static void removeAppKey(final Map<String, SigProfile> byAppKey, final SigProfile profile)
+    {
+        final String appKey = profile.getappKeyForProfileSelection();
+        if (appKey != null && byAppKey.get(appKey) == profile) {
+            byAppKey.remove(appKey);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package burp;
+
+import com.alibaba.cloudapi.client.ContentMd5Cache;
+import com.alibaba.cloudapi.client.HttpUtil;
+import com.alibaba.cloudapi.client.SignTraceListener;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import java.awt.*;
+
+/*
+UI section that displays the string-to-sign and signature of recent requests. Capture is off by default so signing
+threads pay nothing for it.
+ */
+public class SignTracePanel extends JPanel implements SignTraceListener
+{
+    // keep the text area from growing without bound during long scans
+    private static final int MAX_TRACE_CHARS = 200000;
+    private static final int STATS_REFRESH_MILLIS = 2000;
+
+    private final JCheckBox captureCheckBox = new JCheckBox("Capture Signing Trace");
+    private final JTextArea traceTextArea = new JTextArea(12, 100);
+    private final JLabel md5CacheLabel = new JLabel();
+    private final Timer statsTimer = new Timer(STATS_REFRESH_MILLIS, actionEvent -> updateStats());
+
+    public SignTracePanel(final Font sectionFont, final Runnable captureChangedCallback)
+    {
+        super(new GridBagLayout());
+        JLabel traceLabel = new JLabel("Signing Trace");
+        traceLabel.setForeground(BurpExtender.textOrange);
+        traceLabel.setFont(sectionFont);
+
+        captureCheckBox.setToolTipText("Show the string-to-sign, signed headers and signature of each signed request");
+        captureCheckBox.addActionListener(actionEvent -> captureChangedCallback.run());
+        JButton clearButton = new JButton("Clear");
+        clearButton.addActionListener(actionEvent -> traceTextArea.setText(""));
+        JPanel controlPanel = new JPanel();
+        controlPanel.add(captureCheckBox);
+        controlPanel.add(clearButton);
+        controlPanel.add(new JSeparator(SwingConstants.VERTICAL));
+        controlPanel.add(md5CacheLabel);
+        updateStats();
+        statsTimer.start();
+
+        traceTextArea.setEditable(false);
+        traceTextArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, traceTextArea.getFont().getSize()));
+        JScrollPane traceScrollPane = new JScrollPane(traceTextArea);
+
+        GridBagConstraints c00 = new GridBagConstraints(); c00.gridy = 0; c00.anchor = GridBagConstraints.FIRST_LINE_START;
+        GridBagConstraints c01 = new GridBagConstraints(); c01.gridy = 1; c01.anchor = GridBagConstraints.FIRST_LINE_START; c01.insets = new Insets(10, 0, 10, 0);
+        GridBagConstraints c02 = new GridBagConstraints(); c02.gridy = 2; c02.anchor = GridBagConstraints.FIRST_LINE_START;
+        GridBagConstraints c03 = new GridBagConstraints(); c03.gridy = 3; c03.anchor = GridBagConstraints.FIRST_LINE_START;
+        add(traceLabel, c00);
+        add(new JLabel("Inspect how requests are canonicalized. Leave capture disabled during heavy scans."), c01);
+        add(controlPanel, c02);
+        add(traceScrollPane, c03);
+    }
+
+    /*
+    stop refreshing statistics. called when the extension is unloaded.
+     */
+    public void dispose()
+    {
+        statsTimer.stop();
+    }
+
+    private void updateStats()
+    {
+        final ContentMd5Cache cache = HttpUtil.getContentMd5Cache();
+        if (cache == null) {
+            md5CacheLabel.setText("Content-MD5 cache: disabled");
+            return;
+        }
+        final long hits = cache.getHits();
+        final long lookups = hits + cache.getMisses();
+        md5CacheLabel.setText(String.format("Content-MD5 cache: %d/%d hits (%.1f%%), %d KB cached",
+                hits, lookups, cache.getHitRate() * 100, cache.getCachedBytes() / 1024));
+    }
+
+    public boolean isCaptureEnabled()
+    {
+        return captureCheckBox.isSelected();
+    }
+
+    @Override
+    public void signed(final String stringToSign, final String signedHeaders, final String signature, final long elapsedNanos)
+    {
+        final String entry = String.format("======= %s (%d us) =======%n%s%n--- signed headers: %s%n%n",
+                signature, elapsedNanos / 1000, stringToSign, signedHeaders);
+        SwingUtilities.invokeLater(() -> {
+            traceTextArea.append(entry);
+            Document document = traceTextArea.getDocument();
+            final int excess = document.getLength() - MAX_TRACE_CHARS;
+            if (excess > 0) {
+                try {
+                    document.remove(0, excess);
+                } catch (BadLocationException ignored) {
+                }
+            }
+        });
+    }
+}
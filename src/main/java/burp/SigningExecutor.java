@@ -0,0 +1,119 @@
+package burp;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+The one place signing work started from the UI runs, owned by the extension and shut down when it unloads. At most
+maxTasks tasks are queued or running; beyond that execute() throws RejectedExecutionException, so repeated clicks
+cannot pile up threads. On JDK 21 and later each task gets a named virtual thread, found by reflection since the
+extension is built for Java 11. Otherwise a pool of named daemon threads, sized to the CPU count, runs them.
+ */
+public class SigningExecutor implements Executor
+{
+    private static final int MAX_PLATFORM_THREADS = 8;
+    private static final long IDLE_SECONDS = 30;
+    private static final long SHUTDOWN_WAIT_MILLIS = 2000;
+
+    private final String name;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final Semaphore permits;
+    private final int maxTasks;
+
+    public SigningExecutor(final String name, final int maxTasks, final boolean preferVirtualThreads)
+    {
+        this.name = name;
+        this.maxTasks = maxTasks;
+        this.permits = new Semaphore(maxTasks);
+        ExecutorService virtualExecutor = preferVirtualThreads ? newVirtualThreadExecutor(name) : null;
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : newPlatformThreadExecutor(name);
+    }
+
+    private static ExecutorService newPlatformThreadExecutor(final String name)
+    {
+        final int threads = Math.min(MAX_PLATFORM_THREADS, Runtime.getRuntime().availableProcessors());
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), // bounded by permits
+                runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true); // no idle threads while nothing is being signed
+        return pool;
+    }
+
+    /*
+    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory()), or null before JDK 21
+     */
+    static ExecutorService newVirtualThreadExecutor(final String name)
+    {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException exc) {
+            return null;
+        }
+    }
+
+    /*
+    run task on a signing thread. throws RejectedExecutionException if maxTasks tasks are already queued or running,
+    or after shutdown().
+     */
+    @Override
+    public void execute(final Runnable task)
+    {
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException(String.format("%d signing tasks are already pending", maxTasks));
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException exc) {
+                    LogWriter.getLogger().error("Uncaught exception in %s: %s", Thread.currentThread().getName(), exc);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException exc) {
+            permits.release();
+            throw exc;
+        }
+    }
+
+    public boolean isVirtual() { return virtual; }
+
+    public int getPendingCount() { return maxTasks - permits.availablePermits(); }
+
+    /*
+    stop accepting tasks, interrupt running ones and wait briefly for them to finish
+     */
+    public void shutdown()
+    {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LogWriter.getLogger().error("%s: %d signing task(s) still running after shutdown", name, getPendingCount());
+            }
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,882 @@
+package burp;
+
+import com.alibaba.cloudapi.client.HeaderList;
+import com.alibaba.cloudapi.client.HttpUtil;
+import com.alibaba.cloudapi.client.NonceGenerator;
+import com.alibaba.cloudapi.client.RequestSigner;
+import com.alibaba.cloudapi.client.constant.SystemHeader;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Standalone HTTP forward proxy that re-signs every request carrying x-ca-signature-headers, for clients that run
+outside Burp such as load generators and fuzzers. Profiles come from a credential file and are chosen by x-ca-key,
+falling back to an optional default profile.
+
+Each client connection is served by one task that reads requests, signs and forwards them, and relays the responses
+in order. Keep-alive is honoured on both sides and pipelined requests are answered in order; responses to pipelined
+requests are flushed together when no more input is waiting. Up to "workers" connections are served at once, on
+virtual threads on JDK 21 and later and on a pool of that many platform threads otherwise. Requests are expected in
+absolute-form (http://host/path), as clients send them to a proxy, unless an upstream is given, in which case every
+request goes there. CONNECT is refused since requests inside a TLS tunnel can not be re-signed.
+
+    java -cp <extension jar> burp.SigningProxy --credentials <file> [options]
+ */
+public class SigningProxy
+{
+    public static final int DEFAULT_PORT = 8088;
+    public static final int DEFAULT_WORKERS = 256;
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_HEAD_BYTES = 64 * 1024;
+    private static final int MAX_LINE_CHARS = 8 * 1024;
+    private static final int MAX_BODY_BYTES = 64 * 1024 * 1024;
+    private static final int IDLE_TIMEOUT_MILLIS = 60000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int DEFAULT_HTTP_PORT = 80;
+    private static final String THREAD_NAME = "SigningProxy";
+
+    private static final LogWriter logger = LogWriter.getLogger();
+
+    private final SigProfileRegistry profiles;
+    private final SigProfile defaultProfile; // null to require a profile matching x-ca-key
+    private final InetSocketAddress upstream; // null to forward to the host in each request
+    private final int workers;
+    private final boolean preferVirtualThreads;
+    private final boolean preserveHeaderOrder;
+
+    private final Semaphore connectionPermits;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final AtomicLong signedCount = new AtomicLong();
+    private final AtomicLong forwardedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private ExecutorService executor;
+    private Thread acceptThread;
+
+    public SigningProxy(final SigProfileRegistry profiles, final SigProfile defaultProfile, final InetSocketAddress upstream,
+                        final int workers, final boolean preferVirtualThreads, final boolean preserveHeaderOrder)
+    {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be at least 1");
+        }
+        this.profiles = profiles;
+        this.defaultProfile = defaultProfile;
+        this.upstream = upstream;
+        this.workers = workers;
+        this.preferVirtualThreads = preferVirtualThreads;
+        this.preserveHeaderOrder = preserveHeaderOrder;
+        this.connectionPermits = new Semaphore(workers);
+    }
+
+    /*
+    bind and start accepting connections. returns the bound port, useful when listening on port 0.
+     */
+    public synchronized int start(final InetSocketAddress listenAddress) throws IOException
+    {
+        if (running) {
+            throw new IllegalStateException("proxy is already running");
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(listenAddress, workers);
+
+        executor = preferVirtualThreads ? SigningExecutor.newVirtualThreadExecutor(THREAD_NAME) : null;
+        final boolean virtual = executor != null;
+        if (!virtual) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, THREAD_NAME + "-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        running = true;
+        acceptThread = new Thread(this::acceptConnections, THREAD_NAME + "-accept");
+        acceptThread.start();
+        logger.info("Signing proxy listening on %s with %d %s workers%s", serverSocket.getLocalSocketAddress(), workers,
+                virtual ? "virtual" : "platform", (upstream == null) ? "" : ", forwarding to " + upstream);
+        return serverSocket.getLocalPort();
+    }
+
+    /*
+    stop accepting, close every open connection and wait for the accept thread to exit
+     */
+    public void stop()
+    {
+        final Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = acceptThread;
+            closeQuietly(serverSocket);
+            for (Socket socket : openSockets) {
+                closeQuietly(socket);
+            }
+            executor.shutdownNow();
+        }
+        thread.interrupt();
+        try {
+            thread.join(CONNECT_TIMEOUT_MILLIS);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Signing proxy stopped: %d signed, %d forwarded, %d failed", getSignedCount(), getForwardedCount(), getFailedCount());
+    }
+
+    public void awaitStop() throws InterruptedException
+    {
+        acceptThread.join();
+    }
+
+    public long getSignedCount() { return signedCount.get(); }
+    public long getForwardedCount() { return forwardedCount.get(); }
+    public long getFailedCount() { return failedCount.get(); }
+
+    private void acceptConnections()
+    {
+        while (running) {
+            try {
+                // connections beyond the worker count wait in the listen backlog
+                connectionPermits.acquire();
+            } catch (InterruptedException exc) {
+                break;
+            }
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException exc) {
+                connectionPermits.release();
+                if (running) {
+                    logger.error("Signing proxy accept failed: %s", exc);
+                    continue;
+                }
+                break;
+            }
+            try {
+                executor.execute(new Connection(socket));
+            } catch (RejectedExecutionException exc) {
+                connectionPermits.release();
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private static final class Head
+    {
+        final String startLine;
+        final HeaderList headers;
+
+        Head(String startLine, HeaderList headers)
+        {
+            this.startLine = startLine;
+            this.headers = headers;
+        }
+    }
+
+    /*
+    split a message head into its start line and headers. bytes are decoded as ISO-8859-1 so they round trip.
+     */
+    private static Head parseHead(final byte[] head)
+    {
+        final String text = new String(head, StandardCharsets.ISO_8859_1);
+        HeaderList headers = new HeaderList(16);
+        String startLine = null;
+        int lineStart = 0;
+        while (lineStart < text.length()) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = text.length();
+            }
+            final String line = text.substring(lineStart, (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd);
+            lineStart = lineEnd + 1;
+            if (line.isEmpty()) {
+                break;
+            }
+            if (startLine == null) {
+                startLine = line;
+                continue;
+            }
+            final int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.add(line.substring(0, colon), line.substring(colon + 1).trim());
+            }
+        }
+        return new Head((startLine == null) ? "" : startLine, headers);
+    }
+
+    private static byte[] writeHead(final String startLine, final HeaderList headers)
+    {
+        StringBuilder sb = new StringBuilder(startLine.length() + headers.size() * 32 + 4);
+        sb.append(startLine).append("\r\n");
+        for (int i = 0; i < headers.size(); i++) {
+            sb.append(headers.getName(i)).append(": ").append(headers.getValue(i)).append("\r\n");
+        }
+        sb.append("\r\n");
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /*
+    keep-alive is the default for HTTP/1.1 and must be asked for in HTTP/1.0
+     */
+    private static boolean isKeepAlive(final String version, final String connection)
+    {
+        if (connection != null) {
+            final String lowerCase = connection.toLowerCase(Locale.ROOT);
+            if (lowerCase.contains("close")) {
+                return false;
+            }
+            if (lowerCase.contains("keep-alive")) {
+                return true;
+            }
+        }
+        return "HTTP/1.1".equals(version);
+    }
+
+    private static boolean isChunked(final HeaderList headers)
+    {
+        final String transferEncoding = headers.get("Transfer-Encoding");
+        return transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked");
+    }
+
+    private static long contentLength(final HeaderList headers) throws ProtocolException
+    {
+        final String value = headers.get("Content-Length");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            final long length = Long.parseLong(value.trim());
+            if (length < 0) {
+                throw new NumberFormatException();
+            }
+            return length;
+        } catch (NumberFormatException exc) {
+            throw new ProtocolException("invalid Content-Length: " + value);
+        }
+    }
+
+    private static void closeQuietly(final Closeable closeable)
+    {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /*
+    Buffered reader of HTTP messages. Output waiting in flushBeforeBlocking, if set, is flushed whenever a read would
+    block, so responses to pipelined requests go out together but never wait on the next request.
+     */
+    private static final class MessageReader
+    {
+        private final InputStream in;
+        private final OutputStream flushBeforeBlocking;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+
+        MessageReader(InputStream in, OutputStream flushBeforeBlocking)
+        {
+            this.in = in;
+            this.flushBeforeBlocking = flushBeforeBlocking;
+        }
+
+        private boolean fill() throws IOException
+        {
+            if (flushBeforeBlocking != null && in.available() == 0) {
+                flushBeforeBlocking.flush();
+            }
+            final int n = in.read(buffer, 0, buffer.length);
+            if (n < 0) {
+                return false;
+            }
+            position = 0;
+            limit = n;
+            return true;
+        }
+
+        /*
+        the next message head, through the empty line that ends it, or null if the stream ends before it starts.
+        blank lines before a head are skipped.
+         */
+        byte[] readHead() throws IOException
+        {
+            byte[] head = new byte[512];
+            int length = 0;
+            while (true) {
+                if (position == limit && !fill()) {
+                    if (length == 0) {
+                        return null;
+                    }
+                    throw new EOFException("connection closed inside message head");
+                }
+                final byte b = buffer[position++];
+                if (length == 0 && (b == '\r' || b == '\n')) {
+                    continue;
+                }
+                if (length == head.length) {
+                    if (length >= MAX_HEAD_BYTES) {
+                        throw new ProtocolException("message head is larger than " + MAX_HEAD_BYTES + " bytes");
+                    }
+                    head = Arrays.copyOf(head, length * 2);
+                }
+                head[length++] = b;
+                if (b == '\n' && (endsWith(head, length, "\n\n") || endsWith(head, length, "\n\r\n"))) {
+                    return Arrays.copyOf(head, length);
+                }
+            }
+        }
+
+        private static boolean endsWith(final byte[] bytes, final int length, final String suffix)
+        {
+            if (length < suffix.length()) {
+                return false;
+            }
+            for (int i = 0; i < suffix.length(); i++) {
+                if (bytes[length - suffix.length() + i] != suffix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String readLine() throws IOException
+        {
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (position == limit && !fill()) {
+                    throw new EOFException("connection closed inside chunked body");
+                }
+                final char c = (char) (buffer[position++] & 0xff);
+                if (c == '\n') {
+                    final int end = sb.length();
+                    return (end > 0 && sb.charAt(end - 1) == '\r') ? sb.substring(0, end - 1) : sb.toString();
+                }
+                if (sb.length() >= MAX_LINE_CHARS) {
+                    throw new ProtocolException("line is longer than " + MAX_LINE_CHARS + " characters");
+                }
+                sb.append(c);
+            }
+        }
+
+        void readFully(final byte[] destination, int offset, int length) throws IOException
+        {
+            while (length > 0) {
+                if (position == limit && !fill()) {
+                    throw new EOFException("connection closed inside message body");
+                }
+                final int n = Math.min(length, limit - position);
+                System.arraycopy(buffer, position, destination, offset, n);
+                position += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        void copy(final OutputStream out, long length) throws IOException
+        {
+            while (length > 0) {
+                if (position == limit && !fill()) {
+                    throw new EOFException("connection closed inside message body");
+                }
+                final int n = (int) Math.min(length, limit - position);
+                out.write(buffer, position, n);
+                position += n;
+                length -= n;
+            }
+        }
+
+        void copyToEnd(final OutputStream out) throws IOException
+        {
+            while (position < limit || fill()) {
+                out.write(buffer, position, limit - position);
+                position = limit;
+            }
+        }
+
+        private static long chunkSize(final String line) throws ProtocolException
+        {
+            final int extension = line.indexOf(';');
+            final String size = ((extension < 0) ? line : line.substring(0, extension)).trim();
+            try {
+                return Long.parseLong(size, 16);
+            } catch (NumberFormatException exc) {
+                throw new ProtocolException("invalid chunk size: " + line);
+            }
+        }
+
+        /*
+        decode a chunked body. trailers are dropped.
+         */
+        byte[] readChunked(final int maxBytes) throws IOException
+        {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                final long size = chunkSize(readLine());
+                if (size == 0) {
+                    while (!readLine().isEmpty()) {
+                        // skip trailers
+                    }
+                    return body.toByteArray();
+                }
+                if (size > maxBytes - body.size()) {
+                    throw new ProtocolException("body is larger than " + maxBytes + " bytes");
+                }
+                byte[] chunk = new byte[(int) size];
+                readFully(chunk, 0, chunk.length);
+                body.write(chunk, 0, chunk.length);
+                readLine();
+            }
+        }
+
+        /*
+        copy a chunked body as it is, trailers included
+         */
+        void copyChunked(final OutputStream out) throws IOException
+        {
+            while (true) {
+                final String sizeLine = readLine();
+                out.write((sizeLine + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                final long size = chunkSize(sizeLine);
+                if (size == 0) {
+                    String trailer;
+                    do {
+                        trailer = readLine();
+                        out.write((trailer + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                    } while (!trailer.isEmpty());
+                    return;
+                }
+                copy(out, size);
+                readLine();
+                out.write('\r');
+                out.write('\n');
+            }
+        }
+    }
+
+    /*
+    one client connection and the upstream connection it currently forwards to
+     */
+    private final class Connection implements Runnable
+    {
+        private final Socket client;
+        private Socket upstreamSocket;
+        private String upstreamTarget; // host:port of upstreamSocket
+        private MessageReader upstreamIn;
+        private OutputStream upstreamOut;
+        private boolean responseStarted;
+
+        Connection(Socket client)
+        {
+            this.client = client;
+        }
+
+        @Override
+        public void run()
+        {
+            openSockets.add(client);
+            try {
+                client.setTcpNoDelay(true);
+                client.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+                final OutputStream out = new BufferedOutputStream(client.getOutputStream(), BUFFER_SIZE);
+                final MessageReader in = new MessageReader(client.getInputStream(), out);
+                boolean keepAlive = true;
+                while (keepAlive && running) {
+                    final byte[] head = in.readHead();
+                    if (head == null) {
+                        break;
+                    }
+                    keepAlive = handle(head, in, out);
+                }
+                out.flush();
+            } catch (SocketTimeoutException exc) {
+                // idle keep-alive connection
+            } catch (IOException exc) {
+                if (running) {
+                    logger.debug("Signing proxy connection from %s closed: %s", client.getRemoteSocketAddress(), exc);
+                }
+            } finally {
+                closeUpstream();
+                closeQuietly(client);
+                openSockets.remove(client);
+                connectionPermits.release();
+            }
+        }
+
+        /*
+        read the body of one request, sign it and relay the response. returns whether the connection stays open.
+         */
+        private boolean handle(final byte[] head, final MessageReader in, final OutputStream out) throws IOException
+        {
+            final Head request = parseHead(head);
+            final String[] parts = request.startLine.split(" ");
+            if (parts.length != 3) {
+                return sendError(out, 400, "Bad Request", "malformed request line", false);
+            }
+            final String method = parts[0];
+            final String target = parts[1];
+            final String version = parts[2];
+            final HeaderList headers = request.headers;
+            String connection = headers.get("Connection");
+            if (connection == null) {
+                connection = headers.get("Proxy-Connection");
+            }
+            final boolean keepAlive = isKeepAlive(version, connection);
+
+            if (method.equalsIgnoreCase("CONNECT")) {
+                return sendError(out, 501, "Not Implemented", "CONNECT is not supported; send plain HTTP requests to have them signed", keepAlive);
+            }
+
+            // where the request goes, and its target as the origin server expects it
+            String host;
+            int port;
+            String originTarget = target;
+            if (upstream != null) {
+                host = upstream.getHostString();
+                port = upstream.getPort();
+                if (target.regionMatches(true, 0, "http://", 0, 7)) {
+                    final int pathStart = target.indexOf('/', 7);
+                    originTarget = (pathStart < 0) ? "/" : target.substring(pathStart);
+                }
+            }
+            else if (target.regionMatches(true, 0, "http://", 0, 7)) {
+                final int pathStart = target.indexOf('/', 7);
+                final String authority = (pathStart < 0) ? target.substring(7) : target.substring(7, pathStart);
+                originTarget = (pathStart < 0) ? "/" : target.substring(pathStart);
+                final int colon = authority.lastIndexOf(':');
+                try {
+                    host = (colon < 0) ? authority : authority.substring(0, colon);
+                    port = (colon < 0) ? DEFAULT_HTTP_PORT : Integer.parseInt(authority.substring(colon + 1));
+                } catch (NumberFormatException exc) {
+                    return sendError(out, 400, "Bad Request", "invalid port in " + authority, false);
+                }
+            }
+            else {
+                return sendError(out, 400, "Bad Request", "request target must be an absolute http:// URL unless the proxy has an upstream", false);
+            }
+            boolean rewrite = !originTarget.equals(target);
+
+            // the whole body is needed to sign it
+            if ("100-continue".equalsIgnoreCase(headers.get("Expect"))) {
+                out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                headers.remove("Expect");
+                rewrite = true;
+            }
+            final byte[] body;
+            if (isChunked(headers)) {
+                body = in.readChunked(MAX_BODY_BYTES);
+                headers.remove("Transfer-Encoding");
+                headers.set("Content-Length", Integer.toString(body.length));
+                rewrite = true;
+            }
+            else {
+                final long length = contentLength(headers);
+                if (length > MAX_BODY_BYTES) {
+                    return sendError(out, 413, "Payload Too Large", "body is larger than " + MAX_BODY_BYTES + " bytes", false);
+                }
+                body = new byte[(int) Math.max(0, length)];
+                in.readFully(body, 0, body.length);
+            }
+            if (headers.remove("Proxy-Connection") > 0) {
+                rewrite = true;
+            }
+
+            byte[] message;
+            if (rewrite) {
+                final byte[] newHead = writeHead(method + " " + originTarget + " " + version, headers);
+                message = Arrays.copyOf(newHead, newHead.length + body.length);
+                System.arraycopy(body, 0, message, newHead.length, body.length);
+            }
+            else {
+                message = Arrays.copyOf(head, head.length + body.length);
+                System.arraycopy(body, 0, message, head.length, body.length);
+            }
+
+            if (headers.get(SystemHeader.CLOUDAPI_X_CA_SIGNATURE_HEADERS) != null) {
+                final String appKey = headers.get(SystemHeader.CLOUDAPI_X_CA_KEY);
+                SigProfile profile = profiles.getByAppKey(appKey);
+                if (profile == null) {
+                    profile = defaultProfile;
+                }
+                if (profile == null) {
+                    failedCount.incrementAndGet();
+                    return sendError(out, 400, "Bad Request", "no signing profile for x-ca-key: " + appKey, keepAlive);
+                }
+                try {
+                    message = new RequestSigner(profile.getappKey(), profile.getappSecret(), preserveHeaderOrder)
+                            .sign(message, "http", host, port);
+                } catch (IllegalArgumentException exc) {
+                    failedCount.incrementAndGet();
+                    return sendError(out, 400, "Bad Request", "signing failed: " + exc.getMessage(), keepAlive);
+                }
+                signedCount.incrementAndGet();
+            }
+
+            final boolean upstreamKeepAlive = forward(method, host, port, message, out);
+            forwardedCount.incrementAndGet();
+            return keepAlive && upstreamKeepAlive;
+        }
+
+        /*
+        Send a request upstream and relay the response. A reused upstream connection may have been closed by the
+        server while idle; the request is then sent once more on a new connection if no response has been relayed.
+         */
+        private boolean forward(final String method, final String host, final int port, final byte[] message,
+                                final OutputStream out) throws IOException
+        {
+            final String target = host + ":" + port;
+            for (int attempt = 0; ; attempt++) {
+                final boolean reused = upstreamSocket != null && target.equals(upstreamTarget);
+                if (!reused) {
+                    closeUpstream();
+                    try {
+                        Socket socket = new Socket();
+                        socket.setTcpNoDelay(true);
+                        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                        socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+                        upstreamSocket = socket;
+                        upstreamTarget = target;
+                        upstreamOut = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+                        upstreamIn = new MessageReader(socket.getInputStream(), null);
+                        openSockets.add(socket);
+                    } catch (IOException exc) {
+                        failedCount.incrementAndGet();
+                        return sendError(out, 502, "Bad Gateway", "can not connect to " + target + ": " + exc.getMessage(), true);
+                    }
+                }
+                responseStarted = false;
+                try {
+                    upstreamOut.write(message);
+                    upstreamOut.flush();
+                    return relayResponse(method, out);
+                } catch (IOException exc) {
+                    closeUpstream();
+                    if (responseStarted) {
+                        throw exc;
+                    }
+                    if (!reused || attempt > 0) {
+                        failedCount.incrementAndGet();
+                        return sendError(out, 502, "Bad Gateway", "upstream " + target + " failed: " + exc.getMessage(), false);
+                    }
+                }
+            }
+        }
+
+        private boolean relayResponse(final String method, final OutputStream out) throws IOException
+        {
+            while (true) {
+                final byte[] head = upstreamIn.readHead();
+                if (head == null) {
+                    throw new EOFException("upstream closed the connection");
+                }
+                final Head response = parseHead(head);
+                final String[] parts = response.startLine.split(" ", 3);
+                final int status;
+                try {
+                    status = Integer.parseInt(parts[1]);
+                } catch (ArrayIndexOutOfBoundsException | NumberFormatException exc) {
+                    throw new ProtocolException("malformed status line: " + response.startLine);
+                }
+                responseStarted = true;
+                out.write(head);
+                if (status >= 100 && status < 200) {
+                    continue; // interim response, the final one follows
+                }
+
+                final boolean keepAlive = isKeepAlive(parts[0], response.headers.get("Connection"));
+                if (method.equalsIgnoreCase("HEAD") || status == 204 || status == 304) {
+                    // no body
+                }
+                else if (isChunked(response.headers)) {
+                    upstreamIn.copyChunked(out);
+                }
+                else {
+                    final long length = contentLength(response.headers);
+                    if (length < 0) {
+                        // body ends when upstream closes, so the client has to see a close too
+                        upstreamIn.copyToEnd(out);
+                        closeUpstream();
+                        return false;
+                    }
+                    upstreamIn.copy(out, length);
+                }
+                if (!keepAlive) {
+                    closeUpstream();
+                }
+                return keepAlive;
+            }
+        }
+
+        private boolean sendError(final OutputStream out, final int status, final String reason, final String message,
+                                  final boolean keepAlive) throws IOException
+        {
+            logger.debug("Signing proxy: %d %s", status, message);
+            final byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+            final String head = String.format("HTTP/1.1 %d %s\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: %d\r\n%s\r\n",
+                    status, reason, body.length, keepAlive ? "" : "Connection: close\r\n");
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(body);
+            return keepAlive;
+        }
+
+        private void closeUpstream()
+        {
+            if (upstreamSocket != null) {
+                closeQuietly(upstreamSocket);
+                openSockets.remove(upstreamSocket);
+                upstreamSocket = null;
+                upstreamTarget = null;
+            }
+        }
+    }
+
+    private static void usage(final String error)
+    {
+        if (error != null) {
+            System.err.println(error);
+        }
+        System.err.println("usage: java -cp <extension jar> burp.SigningProxy --credentials <file> [options]\n"
+                + "  --listen [host:]port    address to listen on (default 127.0.0.1:" + DEFAULT_PORT + ")\n"
+                + "  --upstream host:port    send every request to this server instead of the host in its URL\n"
+                + "  --profile name          profile for requests whose x-ca-key matches no profile\n"
+                + "  --workers n             connections served at once (default " + DEFAULT_WORKERS + ")\n"
+                + "  --platform-threads      do not use virtual threads, even on JDK 21 and later\n"
+                + "  --nonce mode            secure (default), or sequential[:seed] to repeat the same nonces on every run\n"
+                + "  --nonce-check n         never reuse a nonce within the last n issued\n"
+                + "  --sort-headers          sort headers by name when signing instead of keeping their order\n"
+                + "  --log-level level       debug, info or error (default info)");
+        System.exit(2);
+    }
+
+    private static InetSocketAddress parseAddress(final String value, final String defaultHost)
+    {
+        final int colon = value.lastIndexOf(':');
+        final String host = (colon < 0) ? defaultHost : value.substring(0, colon);
+        final int port = Integer.parseInt(value.substring(colon + 1));
+        return new InetSocketAddress(host, port);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Path credentialPath = null;
+        InetSocketAddress listenAddress = new InetSocketAddress("127.0.0.1", DEFAULT_PORT);
+        InetSocketAddress upstream = null;
+        String profileName = null;
+        int workers = DEFAULT_WORKERS;
+        boolean preferVirtualThreads = true;
+        boolean preserveHeaderOrder = true;
+        String nonceMode = NonceGenerator.MODE_SECURE;
+        int nonceReplayWindow = 0;
+        int logLevel = LogWriter.INFO_LEVEL;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--credentials":
+                        credentialPath = Paths.get(args[++i]);
+                        break;
+                    case "--listen":
+                        listenAddress = parseAddress(args[++i], "127.0.0.1");
+                        break;
+                    case "--upstream":
+                        upstream = parseAddress(args[++i], "127.0.0.1");
+                        break;
+                    case "--profile":
+                        profileName = args[++i];
+                        break;
+                    case "--workers":
+                        workers = Integer.parseInt(args[++i]);
+                        break;
+                    case "--platform-threads":
+                        preferVirtualThreads = false;
+                        break;
+                    case "--sort-headers":
+                        preserveHeaderOrder = false;
+                        break;
+                    case "--nonce":
+                        nonceMode = args[++i];
+                        break;
+                    case "--nonce-check":
+                        nonceReplayWindow = Integer.parseInt(args[++i]);
+                        break;
+                    case "--log-level":
+                        logLevel = Arrays.asList("debug", "info", "error").indexOf(args[++i]);
+                        if (logLevel < 0) {
+                            usage("unknown log level: " + args[i]);
+                        }
+                        break;
+                    default:
+                        usage("unknown option: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException exc) {
+            usage("missing value for " + args[args.length - 1]);
+        } catch (IllegalArgumentException exc) {
+            usage(exc.getMessage());
+        }
+        try {
+            HttpUtil.setNonceGenerator(NonceGenerator.parse(nonceMode, nonceReplayWindow));
+        } catch (IllegalArgumentException exc) {
+            usage(exc.getMessage());
+        }
+        if (credentialPath == null) {
+            usage("--credentials is required");
+        }
+        if (!Files.exists(credentialPath)) {
+            usage("credential file does not exist: " + credentialPath);
+        }
+
+        logger.configure(System.out, System.err, logLevel);
+        final SigProfileRegistry profiles = SigProfileRegistry.fromCredentialPath(credentialPath);
+        SigProfile defaultProfile = null;
+        if (profileName != null) {
+            defaultProfile = profiles.get(profileName);
+            if (defaultProfile == null) {
+                usage("profile not found in " + credentialPath + ": " + profileName);
+            }
+        }
+        logger.info("Loaded %d profile(s) from %s", profiles.size(), credentialPath);
+
+        final SigningProxy proxy = new SigningProxy(profiles, defaultProfile, upstream, workers, preferVirtualThreads, preserveHeaderOrder);
+        proxy.start(listenAddress);
+        Runtime.getRuntime().addShutdownHook(new Thread(proxy::stop, THREAD_NAME + "-shutdown"));
+        proxy.awaitStop();
+    }
+}